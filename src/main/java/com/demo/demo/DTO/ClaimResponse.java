@@ -0,0 +1,11 @@
+package com.demo.demo.DTO;
+
+/**
+ * Outcome of claiming one unit of a deal.
+ * qtyLeft is the live remaining quantity after the claim, 0 if the deal was already sold out.
+ */
+public record ClaimResponse(
+    String dealObjectId,
+    boolean claimed,
+    int qtyLeft
+) {}
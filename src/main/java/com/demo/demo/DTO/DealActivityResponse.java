@@ -0,0 +1,14 @@
+package com.demo.demo.DTO;
+
+import java.util.List;
+
+/**
+ * Deals that started or ended at a minute of the day, pushed on the event stream.
+ * Deals that became active carry their payload; expired ones only their objectId.
+ */
+public record DealActivityResponse(
+    long version,
+    String time,
+    List<DealResponse> activated,
+    List<String> expired
+) {}
@@ -0,0 +1,15 @@
+package com.demo.demo.DTO;
+
+import java.util.List;
+
+/**
+ * Times to look up in one request, with the same optional filters as {@code /api/deals}.
+ */
+public record DealBatchRequest(
+    List<String> times,
+    String suburb,
+    Boolean dineIn,
+    Boolean lightning,
+    Integer minQty,
+    Integer minDiscount
+) {}
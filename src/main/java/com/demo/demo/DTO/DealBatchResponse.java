@@ -0,0 +1,24 @@
+package com.demo.demo.DTO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deals active at each requested time, all from one snapshot version.
+ * Each deal's payload is sent once in deals, keyed by dealObjectId; results only list the keys.
+ */
+public record DealBatchResponse(
+    long version,
+    Map<String, DealResponse> deals,
+    List<Result> results
+) {
+
+    /**
+     * The deals active at one requested time, in feed order.
+     */
+    public record Result(
+        String timeOfDay,
+        String time,
+        List<String> dealObjectIds
+    ) {}
+}
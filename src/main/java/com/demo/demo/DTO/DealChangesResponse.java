@@ -0,0 +1,18 @@
+package com.demo.demo.DTO;
+
+import java.util.List;
+
+/**
+ * Deals that changed since the version a client last saw.
+ * Added and modified deals carry their current payload, removed ones only their objectId.
+ * If resync is true the history no longer covers sinceVersion and the lists are empty:
+ * the client should fetch the full deal list and continue from currentVersion.
+ */
+public record DealChangesResponse(
+    long sinceVersion,
+    long currentVersion,
+    boolean resync,
+    List<DealResponse> added,
+    List<DealResponse> modified,
+    List<String> removed
+) {}
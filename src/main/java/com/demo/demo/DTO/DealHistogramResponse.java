@@ -0,0 +1,21 @@
+package com.demo.demo.DTO;
+
+import java.util.List;
+
+public record DealHistogramResponse(
+    String from,
+    String to,
+    int bucketMinutes,
+    int activeDeals,
+    List<Bucket> buckets
+) {
+
+    /**
+     * Deals active at any point between start and end, both inclusive.
+     */
+    public record Bucket(
+        String start,
+        String end,
+        int activeDeals
+    ) {}
+}
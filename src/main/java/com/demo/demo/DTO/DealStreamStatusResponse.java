@@ -0,0 +1,10 @@
+package com.demo.demo.DTO;
+
+/**
+ * Snapshot version and wall-clock minute of the event stream, sent when a client connects
+ * and when it has to resync by fetching the full deal list.
+ */
+public record DealStreamStatusResponse(
+    long version,
+    String time
+) {}
@@ -0,0 +1,11 @@
+package com.demo.demo.DTO;
+
+/**
+ * When the set of active deals next changes after a given time.
+ * nextChange and minutesUntilChange are null if nothing changes for the rest of the day.
+ */
+public record NextChangeResponse(
+    String after,
+    String nextChange,
+    Integer minutesUntilChange
+) {}
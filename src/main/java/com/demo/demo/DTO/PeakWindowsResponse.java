@@ -0,0 +1,17 @@
+package com.demo.demo.DTO;
+
+import java.util.List;
+
+public record PeakWindowsResponse(
+    List<Window> windows
+) {
+
+    /**
+     * A peak window; end is exclusive, as for {@link PeakWindowResponse}.
+     */
+    public record Window(
+        String start,
+        String end,
+        int activeDeals
+    ) {}
+}
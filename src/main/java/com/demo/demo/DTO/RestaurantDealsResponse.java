@@ -0,0 +1,26 @@
+package com.demo.demo.DTO;
+
+import java.util.List;
+
+/**
+ * A restaurant with its deals nested, returned by {@code /api/deals?groupBy=restaurant}
+ * so the restaurant fields are sent once instead of once per deal.
+ */
+public record RestaurantDealsResponse(
+    String restaurantObjectId,
+    String restaurantName,
+    String restaurantAddress1,
+    String restaurantSuburb,
+    String restaurantOpen,
+    String restaurantClose,
+    List<Deal> deals
+) {
+
+    public record Deal(
+        String dealObjectId,
+        String discount,
+        boolean dineIn,
+        boolean lightning,
+        int qtyLeft
+    ) {}
+}
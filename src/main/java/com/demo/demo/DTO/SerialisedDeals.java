@@ -0,0 +1,55 @@
+package com.demo.demo.DTO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.util.DigestUtils;
+
+import com.demo.demo.utils.PipelineMetrics;
+
+/**
+ * Already-serialised JSON for a deals response, shared between requests.
+ * The byte arrays must not be modified.
+ * @param etag strong ETag of the JSON body
+ * @param json the JSON body
+ * @param gzippedJson the precompressed gzip variant, or null if it is compressed on demand
+ */
+public record SerialisedDeals(
+    String etag,
+    byte[] json,
+    byte[] gzippedJson
+) {
+
+    /**
+     * Wraps a serialised body with its ETag.
+     * @param json the JSON body
+     * @param precompress whether to build the gzip variant now; worth it only for responses that are cached
+     * @return the response
+     */
+    public static SerialisedDeals of(byte[] json, boolean precompress) {
+        String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+        return new SerialisedDeals(etag, json, precompress ? compress(json) : null);
+    }
+
+    /**
+     * @return the gzip variant, compressed on this call if it was not precomputed
+     */
+    public byte[] gzipped() {
+        return Objects.nonNull(gzippedJson) ? gzippedJson : compress(json);
+    }
+
+    private static byte[] compress(byte[] json) {
+        return PipelineMetrics.Stage.COMPRESS.time(() -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package com.demo.demo.config;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Applies {@code data.http.keep-alive} to the JDK HTTP client. The idle timeout of its connection pool
+ * is the JVM-wide {@value #KEEP_ALIVE_PROPERTY} system property, read once when the pool is first used,
+ * so it cannot be set per client or from a bean. This runs as soon as the environment is prepared, before
+ * any bean creates an {@link java.net.http.HttpClient}, for every way the application is started.
+ * A {@code -D} flag on the command line takes precedence.
+ */
+public class HttpKeepAliveEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (Objects.nonNull(System.getProperty(KEEP_ALIVE_PROPERTY))) {
+            return;
+        }
+        Duration keepAlive = Binder.get(environment).bind("data.http.keep-alive", Duration.class)
+                .orElse(UrlProperties.Http.DEFAULT_KEEP_ALIVE);
+        System.setProperty(KEEP_ALIVE_PROPERTY, Long.toString(keepAlive.toSeconds()));
+    }
+}
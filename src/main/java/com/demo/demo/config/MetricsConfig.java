@@ -0,0 +1,96 @@
+package com.demo.demo.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.demo.demo.repository.Impl.CachedHttpDealsRepository;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.service.Impl.DealServiceImpl;
+import com.demo.demo.service.Impl.DealStreamServiceImpl;
+import com.demo.demo.utils.SingleFlight;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder dealLoadMetrics(CachedHttpDealsRepository dealsRepository) {
+        SingleFlight<?> reloads = dealsRepository.getReloads();
+        return registry -> {
+            FunctionCounter.builder("deals.load.executions", reloads, SingleFlight::executions)
+                    .description("Upstream deal loads actually started")
+                    .register(registry);
+            FunctionCounter.builder("deals.load.coalesced", reloads, SingleFlight::coalesced)
+                    .description("Callers that joined a deal load already in flight instead of starting one")
+                    .register(registry);
+        };
+    }
+
+    // Gauges read the live snapshot and report NaN until the first load
+    @Bean
+    public MeterBinder dealSnapshotMetrics(CachedHttpDealsRepository dealsRepository) {
+        return registry -> {
+            TimeGauge.builder("deals.snapshot.age", dealsRepository, TimeUnit.MILLISECONDS,
+                    r -> snapshotValue(r, s -> Duration.between(s.loadedAt(), Instant.now()).toMillis()))
+                    .description("Time since the current snapshot was built")
+                    .register(registry);
+            Gauge.builder("deals.snapshot.deals", dealsRepository, r -> snapshotValue(r, s -> s.store().size()))
+                    .description("Deals in the current snapshot")
+                    .register(registry);
+            Gauge.builder("deals.snapshot.version", dealsRepository, r -> snapshotValue(r, DealSnapshot::version))
+                    .description("Version of the current snapshot")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder dealResponseCacheMetrics(DealServiceImpl dealService) {
+        return registry -> {
+            FunctionCounter.builder("deals.response.cache.hits", dealService, DealServiceImpl::responseCacheHits)
+                    .description("Serialised deal responses served from the cache")
+                    .register(registry);
+            FunctionCounter.builder("deals.response.cache.misses", dealService, DealServiceImpl::responseCacheMisses)
+                    .description("Serialised deal responses that had to be built")
+                    .register(registry);
+            FunctionCounter.builder("deals.response.cache.evictions", dealService, DealServiceImpl::responseCacheEvictions)
+                    .description("Serialised deal responses evicted to stay within the response cache budget")
+                    .register(registry);
+            Gauge.builder("deals.response.cache.hit.ratio", dealService, MetricsConfig::hitRatio)
+                    .description("Share of cacheable deal responses served from the cache since startup")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder dealStreamMetrics(DealStreamServiceImpl dealStreamService) {
+        return registry -> {
+            Gauge.builder("deals.stream.subscribers", dealStreamService, DealStreamServiceImpl::subscriberCount)
+                    .description("Open deal event streams")
+                    .register(registry);
+            FunctionCounter.builder("deals.stream.overflows", dealStreamService, DealStreamServiceImpl::overflows)
+                    .description("Times a stream subscriber fell a full buffer behind and was told to resync")
+                    .register(registry);
+        };
+    }
+
+    private static double snapshotValue(CachedHttpDealsRepository dealsRepository, ToDoubleFunction<DealSnapshot> value) {
+        DealSnapshot snapshot = dealsRepository.peekSnapshot();
+        return Objects.nonNull(snapshot) ? value.applyAsDouble(snapshot) : Double.NaN;
+    }
+
+    private static double hitRatio(DealServiceImpl dealService) {
+        long hits = dealService.responseCacheHits();
+        long total = hits + dealService.responseCacheMisses();
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+}
@@ -1,14 +1,59 @@
 package com.demo.demo.config;
 
+import java.net.http.HttpClient;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 
 @Component
 public class RestClientConfig {
-    
+
+    /**
+     * The JDK client that fetches the feed. Its asynchronous work runs on virtual threads when
+     * {@code spring.threads.virtual.enabled} is set, like the web tier and the scheduler.
+     */
+    @Bean
+    public HttpClient dealsHttpClient(UrlProperties urlProperties, Environment environment) {
+        return httpClient(urlProperties.getHttp(), Threading.VIRTUAL.isActive(environment));
+    }
+
     @Bean
-    public RestClient restClient() {
-        return RestClient.create();
+    public RestClient restClient(HttpClient dealsHttpClient, UrlProperties urlProperties) {
+        return RestClient.builder()
+                .requestFactory(requestFactory(dealsHttpClient, urlProperties.getHttp()))
+                .build();
+    }
+
+    /**
+     * Builds a request factory on a JDK {@link HttpClient} with explicit timeouts and protocol.
+     * @param http the client settings
+     * @param virtualThreads whether the client's asynchronous work runs on virtual threads
+     * @return the request factory
+     */
+    public static JdkClientHttpRequestFactory requestFactory(UrlProperties.Http http, boolean virtualThreads) {
+        return requestFactory(httpClient(http, virtualThreads), http);
+    }
+
+    // Keep-alive is JVM-wide rather than per client; see HttpKeepAliveEnvironmentPostProcessor
+    private static HttpClient httpClient(UrlProperties.Http http, boolean virtualThreads) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .connectTimeout(http.getConnectTimeout())
+                .version(http.getVersion())
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (virtualThreads) {
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        return builder.build();
+    }
+
+    private static JdkClientHttpRequestFactory requestFactory(HttpClient client, UrlProperties.Http http) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client);
+        factory.setReadTimeout(http.getReadTimeout());
+        return factory;
     }
 }
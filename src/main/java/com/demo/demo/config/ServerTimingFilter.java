@@ -0,0 +1,76 @@
+package com.demo.demo.config;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.demo.demo.utils.ServerTiming;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Adds a {@code Server-Timing} header with the pipeline stages that ran for the request,
+ * enabled by {@code data.server-timing=true}.
+ * The header is set just before the body is written, while headers can still be changed.
+ */
+@Component
+@ConditionalOnProperty(prefix = "data", name = "server-timing", havingValue = "true")
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String SERVER_TIMING = "Server-Timing";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ServerTiming timing = ServerTiming.start();
+        try {
+            filterChain.doFilter(request, new TimedResponse(response, timing));
+        } finally {
+            ServerTiming.end();
+        }
+    }
+
+    private static final class TimedResponse extends HttpServletResponseWrapper {
+
+        private final ServerTiming timing;
+        private boolean written;
+
+        private TimedResponse(HttpServletResponse response, ServerTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        private void writeHeader() {
+            if (!written && !isCommitted()) {
+                setHeader(SERVER_TIMING, timing.header());
+            }
+            written = true;
+        }
+    }
+}
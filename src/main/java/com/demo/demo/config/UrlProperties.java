@@ -1,8 +1,16 @@
 package com.demo.demo.config;
 
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import com.demo.demo.repository.snapshot.DealStore;
+import com.demo.demo.repository.snapshot.MinuteActivityTable;
+
 import lombok.Data;
 
 @Data
@@ -11,5 +19,126 @@ import lombok.Data;
 public class UrlProperties {
 
     private String url;
-    
+
+    /**
+     * How often the in-memory deal snapshot is refreshed from {@link #url}.
+     */
+    private Duration refreshInterval = Duration.ofMinutes(5);
+
+    /**
+     * Memory layout of the deal snapshot: {@code list} keeps one record per deal,
+     * {@code columnar} stores primitive columns and builds records only for returned rows.
+     */
+    private DealStore.Layout snapshotLayout = DealStore.Layout.LIST;
+
+    /**
+     * Most deal positions the per-minute activity table of a snapshot may store (4 bytes each).
+     * Snapshots whose table would be larger answer time lookups from the interval index instead.
+     */
+    private long activityTableBudget = MinuteActivityTable.DEFAULT_MAX_STORED_POSITIONS;
+
+    /**
+     * How out of date the live quantities in a cached deals response may be. While claims come in,
+     * cached responses are re-serialised at most this often.
+     */
+    private Duration quantityStaleness = Duration.ofSeconds(2);
+
+    /**
+     * Most bytes of serialised JSON and gzip bodies each response cache (flat and grouped by
+     * restaurant) holds for the current snapshot. The least recently used segments are evicted first.
+     */
+    private long responseCacheBudget = 64L * 1024 * 1024;
+
+    /**
+     * Optional cap on the Cache-Control max-age of deals responses, for deployments where clients
+     * must see claimed quantities quickly. Unset by default, so responses stay cacheable until the
+     * next deal boundary or refresh.
+     */
+    private Duration liveQuantityMaxAge;
+
+    /**
+     * File the snapshot is persisted to after each load and restored from on startup.
+     * Persistence is off when unset.
+     */
+    private Path snapshotFile;
+
+    /**
+     * Number of refreshes whose changes are kept for {@code /api/deals/changes}; clients further
+     * behind have to fetch the full list again.
+     */
+    private int changeHistory = 32;
+
+    /**
+     * Number of threads that normalise restaurants while a feed is parsed; 1 parses sequentially.
+     */
+    private int parseParallelism = 1;
+
+    /**
+     * Whether responses carry a {@code Server-Timing} header with the time spent in each pipeline stage.
+     */
+    private boolean serverTiming;
+
+    /**
+     * Settings of the HTTP client used to fetch {@link #url}.
+     */
+    private Http http = new Http();
+
+    /**
+     * Settings of the {@code /api/deals/stream} event stream.
+     */
+    private Stream stream = new Stream();
+
+    @Data
+    public static class Http {
+
+        static final Duration DEFAULT_KEEP_ALIVE = Duration.ofMinutes(10);
+
+        /**
+         * Maximum time to establish a connection to the upstream.
+         */
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        /**
+         * Maximum time to wait for the response headers of a feed request.
+         */
+        private Duration readTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Preferred protocol; {@code http-2} falls back to HTTP/1.1 when the upstream does not offer it.
+         */
+        private HttpClient.Version version = HttpClient.Version.HTTP_2;
+
+        /**
+         * How long idle upstream connections stay pooled, in whole seconds. The JDK client reads this
+         * once per JVM, so it is applied at startup by {@link HttpKeepAliveEnvironmentPostProcessor}
+         * and cannot change at runtime.
+         */
+        private Duration keepAlive = DEFAULT_KEEP_ALIVE;
+    }
+
+    @Data
+    public static class Stream {
+
+        /**
+         * Time zone whose wall clock decides when deals start and end.
+         */
+        private ZoneId zone = ZoneId.systemDefault();
+
+        /**
+         * Events buffered per subscriber; a subscriber that falls further behind gets a resync event instead.
+         */
+        private int bufferSize = 32;
+
+        /**
+         * Maximum number of open streams; further subscribers get 503.
+         * Each open stream keeps about 100 KB of Tomcat connection buffers on the heap.
+         */
+        private int maxSubscribers = 5_000;
+
+        /**
+         * How long a stream stays open before the client has to reconnect.
+         */
+        private Duration timeout = Duration.ofMinutes(30);
+    }
+
 }
@@ -3,18 +3,45 @@ package com.demo.demo.controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.demo.demo.DTO.ClaimResponse;
+import com.demo.demo.DTO.DealBatchRequest;
+import com.demo.demo.DTO.DealBatchResponse;
+import com.demo.demo.DTO.DealChangesResponse;
+import com.demo.demo.DTO.DealHistogramResponse;
 import com.demo.demo.DTO.DealResponse;
+import com.demo.demo.DTO.NextChangeResponse;
 import com.demo.demo.DTO.PeakWindowResponse;
+import com.demo.demo.DTO.PeakWindowsResponse;
+import com.demo.demo.DTO.RestaurantDealsResponse;
+import com.demo.demo.DTO.SerialisedDeals;
+import com.demo.demo.repository.DealFilter;
 import com.demo.demo.service.DealService;
+import com.demo.demo.service.DealStreamService;
+import com.demo.demo.utils.PipelineMetrics;
 
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.Data;
 
-import java.util.List;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 
 @Data
@@ -24,10 +51,145 @@ import org.springframework.web.bind.annotation.RequestParam;
 public class DealController {
 
     private final DealService dealService;
+
+    private final DealStreamService dealStreamService;
     
+    /**
+     * Serves pre-serialised deals. The strong ETag lets pollers revalidate with If-None-Match
+     * and get a 304 until the snapshot changes or a deal starts/ends.
+     * With groupBy=restaurant each restaurant is sent once with its deals nested.
+     * The optional attribute filters are applied server-side through the snapshot's secondary indexes.
+     * With from/to instead of timeOfDay, returns the deals active at any point in [from, to].
+     */
     @GetMapping("")
-    public ResponseEntity<List<DealResponse>> getDeals(@RequestParam(required = false) String timeOfDay) {
-        return ResponseEntity.ok(dealService.getDealsActiveAt(timeOfDay));
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(oneOf = {DealResponse.class, RestaurantDealsResponse.class}))))
+    public ResponseEntity<byte[]> getDeals(@RequestParam(required = false) String timeOfDay,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String suburb,
+            @RequestParam(required = false) Boolean dineIn,
+            @RequestParam(required = false) Boolean lightning,
+            @RequestParam(required = false) Integer minQty,
+            @RequestParam(required = false) Integer minDiscount,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        DealFilter filter = new DealFilter(suburb, dineIn, lightning, minQty, minDiscount);
+        boolean range = Objects.nonNull(from) || Objects.nonNull(to);
+        if (range && Objects.nonNull(timeOfDay)) {
+            throw new IllegalArgumentException("Use either timeOfDay or from/to, not both");
+        }
+        boolean grouped = Objects.nonNull(groupBy);
+        if (grouped && !"restaurant".equalsIgnoreCase(groupBy)) {
+            throw new IllegalArgumentException("Unsupported groupBy: " + groupBy);
+        }
+        
+        SerialisedDeals deals;
+        if (range) {
+            deals = grouped
+                    ? dealService.getSerialisedRestaurantsActiveBetween(from, to, filter)
+                    : dealService.getSerialisedDealsActiveBetween(from, to, filter);
+        } else {
+            deals = grouped
+                    ? dealService.getSerialisedRestaurantsActiveAt(timeOfDay, filter)
+                    : dealService.getSerialisedDealsActiveAt(timeOfDay, filter);
+        }
+        // A time-of-day result is valid until the next deal boundary; anything else until the next refresh
+        Duration lifetime = dealService.getResponseLifetime(range ? null : timeOfDay);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .cacheControl(CacheControl.maxAge(lifetime))
+                .headers(headers -> headers.setExpires(Instant.now().plus(lifetime).toEpochMilli()));
+        
+        if (acceptsGzip(acceptEncoding)) {
+            // Cached responses are precompressed; uncached ones are only compressed here
+            byte[] gzipped = deals.gzipped();
+            PipelineMetrics.payload(gzipped.length, true);
+            // The gzip representation gets its own strong ETag
+            return response
+                    .eTag(deals.etag().replaceFirst("\"$", "-gzip\""))
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(gzipped);
+        }
+        PipelineMetrics.payload(deals.json().length, false);
+        return response.eTag(deals.etag()).body(deals.json());
+    }
+    
+    /**
+     * Reads an Accept-Encoding header: gzip is accepted when listed, or covered by "*", with a
+     * non-zero q-value. An explicit gzip entry wins over "*"; a malformed q-value counts as zero.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (Objects.isNull(acceptEncoding)) {
+            return false;
+        }
+        double gzip = -1;
+        double any = -1;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim();
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if ("gzip".equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+                gzip = Math.max(gzip, q);
+            } else if ("*".equals(coding)) {
+                any = Math.max(any, q);
+            }
+        }
+        return (gzip >= 0 ? gzip : any) > 0;
+    }
+    
+    /**
+     * Looks up the deals active at many times in one round trip, all against the same snapshot.
+     * Each deal's payload is sent once; the per-time results reference deals by dealObjectId.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<DealBatchResponse> getDealsBatch(@RequestBody DealBatchRequest request) {
+        DealFilter filter = new DealFilter(request.suburb(), request.dineIn(), request.lightning(), request.minQty(), request.minDiscount());
+        return ResponseEntity.ok(dealService.getDealsActiveAtBatch(request.times(), filter));
+    }
+    
+    /**
+     * Claims one unit of a deal: 200 with the remaining quantity, 409 if it is sold out,
+     * 404 if the current snapshot has no such deal.
+     */
+    @PostMapping("/{dealObjectId}/claim")
+    public ResponseEntity<ClaimResponse> claimDeal(@PathVariable String dealObjectId) {
+        ClaimResponse claim = dealService.claimDeal(dealObjectId);
+        return ResponseEntity.status(claim.claimed() ? HttpStatus.OK : HttpStatus.CONFLICT).body(claim);
+    }
+    
+    /**
+     * Serves the deals that changed since a snapshot version, for clients that poll the full list.
+     * A response with resync=true means the client is too far behind and should refetch everything.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<DealChangesResponse> getChanges(@RequestParam long sinceVersion) {
+        return ResponseEntity.ok(dealService.getChangesSince(sinceVersion));
+    }
+    
+    /**
+     * Opens a Server-Sent Events stream of deal activity and refresh changes, as an alternative
+     * to polling. A reconnecting client's Last-Event-ID resumes from the change history.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDeals(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return dealStreamService.subscribe(lastEventId);
+    }
+    
+    @GetMapping("/next-change")
+    public ResponseEntity<NextChangeResponse> getNextChange(@RequestParam String after) {
+        return ResponseEntity.ok(dealService.getNextChange(after));
     }
     
     @GetMapping("/peak-window")
@@ -35,4 +197,22 @@ public class DealController {
         return ResponseEntity.ok(dealService.getPeakDealWindow());
     }
     
+    @GetMapping("/peak-windows")
+    public ResponseEntity<PeakWindowsResponse> getPeakWindows(@RequestParam(defaultValue = "1") int k,
+            @RequestParam(required = false) String suburb,
+            @RequestParam(required = false) Boolean dineIn,
+            @RequestParam(required = false) Boolean lightning,
+            @RequestParam(required = false) Integer minQty,
+            @RequestParam(required = false) Integer minDiscount) {
+        DealFilter filter = new DealFilter(suburb, dineIn, lightning, minQty, minDiscount);
+        return ResponseEntity.ok(dealService.getPeakDealWindows(k, filter));
+    }
+    
+    @GetMapping("/histogram")
+    public ResponseEntity<DealHistogramResponse> getHistogram(@RequestParam(required = false) String bucket,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        return ResponseEntity.ok(dealService.getActiveDealHistogram(bucket, from, to));
+    }
+    
 }
@@ -2,18 +2,70 @@ package com.demo.demo.entity;
 
 import java.time.LocalTime;
 
+/**
+ * A deal with its window clamped to the restaurant's opening hours.
+ * The restaurant is a shared instance, so its fields are not copied into every deal;
+ * the restaurant accessors delegate to it.
+ */
 public record NormalisedDeal(
-    String restaurantObjectId,
-    String restaurantName,
-    String restaurantAddress1,
-    String restaurantSuburb,
+    Restaurant restaurant,
     LocalTime start,
     LocalTime end,
     String dealObjectId,
     String discount,
     boolean dineIn,
     boolean lightning,
-    int qtyLeft,
-    LocalTime restaurantOpen,
-    LocalTime restaurantClose
-) {}
+    int qtyLeft
+) {
+
+    public NormalisedDeal(
+        String restaurantObjectId,
+        String restaurantName,
+        String restaurantAddress1,
+        String restaurantSuburb,
+        LocalTime start,
+        LocalTime end,
+        String dealObjectId,
+        String discount,
+        boolean dineIn,
+        boolean lightning,
+        int qtyLeft,
+        LocalTime restaurantOpen,
+        LocalTime restaurantClose
+    ) {
+        this(new Restaurant(restaurantObjectId, restaurantName, restaurantAddress1, restaurantSuburb, restaurantOpen, restaurantClose),
+                start, end, dealObjectId, discount, dineIn, lightning, qtyLeft);
+    }
+
+    /**
+     * @param qtyLeft the live remaining quantity
+     * @return this deal with a different remaining quantity
+     */
+    public NormalisedDeal withQtyLeft(int qtyLeft) {
+        return new NormalisedDeal(restaurant, start, end, dealObjectId, discount, dineIn, lightning, qtyLeft);
+    }
+
+    public String restaurantObjectId() {
+        return restaurant.objectId();
+    }
+
+    public String restaurantName() {
+        return restaurant.name();
+    }
+
+    public String restaurantAddress1() {
+        return restaurant.address1();
+    }
+
+    public String restaurantSuburb() {
+        return restaurant.suburb();
+    }
+
+    public LocalTime restaurantOpen() {
+        return restaurant.open();
+    }
+
+    public LocalTime restaurantClose() {
+        return restaurant.close();
+    }
+}
@@ -0,0 +1,15 @@
+package com.demo.demo.entity;
+
+import java.time.LocalTime;
+
+/**
+ * A restaurant as it appears in the feed, shared by all of its deals.
+ */
+public record Restaurant(
+    String objectId,
+    String name,
+    String address1,
+    String suburb,
+    LocalTime open,
+    LocalTime close
+) {}
@@ -1,18 +1,41 @@
 package com.demo.demo.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestClient;
 
 import com.demo.demo.config.UrlProperties;
 import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.entity.Restaurant;
+import com.demo.demo.utils.PipelineMetrics;
 import com.demo.demo.utils.TimeUtils;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -22,30 +45,225 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class DealLoader {
     
+    // Restaurants per parallel normalisation task
+    static final int CHUNK_SIZE = 128;
+    
     private final RestClient restClient;
     private final ObjectMapper objectMapper;
     private final UrlProperties urlProperties;
     
-    public List<NormalisedDeal> loadAll() throws JsonMappingException, JsonProcessingException {
+    // Validators of the last feed that was parsed, used for conditional fetches
+    private volatile String etag;
+    private volatile String lastModified;
+    private volatile byte[] contentHash;
+    
+    /**
+     * Fetches the deal feed and normalises it, regardless of whether it changed since the last load.
+     * The response body is streamed straight into the parser, so at most one restaurant
+     * is held as a tree at a time instead of the whole payload.
+     * @return all normalised deals in feed order
+     */
+    public List<NormalisedDeal> loadAll() throws IOException {
+        return fetch(false).orElseThrow();
+    }
+    
+    /**
+     * Fetches the deal feed only if it changed since the last successful load.
+     * Sends If-None-Match / If-Modified-Since when the upstream provided an ETag or Last-Modified,
+     * and otherwise compares a SHA-256 of the body, so unchanged feeds are never parsed.
+     * @return the normalised deals, or empty if the feed is unchanged
+     */
+    public Optional<List<NormalisedDeal>> loadIfChanged() throws IOException {
+        return fetch(true);
+    }
+    
+    private Optional<List<NormalisedDeal>> fetch(boolean conditional) throws IOException {
         String url = urlProperties.getUrl();
-        String body = restClient.get().uri(url).retrieve().body(String.class);
-        
-        JsonNode root = objectMapper.readTree(body);
+        long requested = System.nanoTime();
+        return restClient.get().uri(url)
+                .headers(headers -> {
+                    headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+                    if (conditional && Objects.nonNull(etag)) {
+                        headers.setIfNoneMatch(etag);
+                    }
+                    if (conditional && Objects.nonNull(lastModified)) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+                    }
+                })
+                .exchange((request, response) -> {
+                    PipelineMetrics.Stage.FETCH.record(System.nanoTime() - requested);
+                    if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                        return Optional.empty();
+                    }
+                    if (response.getStatusCode().isError()) {
+                        new DefaultResponseErrorHandler().handleError(request.getURI(), request.getMethod(), response);
+                    }
+                    
+                    String newEtag = response.getHeaders().getETag();
+                    String newLastModified = response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+                    
+                    try (InputStream body = decode(response.getHeaders(), response.getBody())) {
+                        if (Objects.nonNull(newEtag) || Objects.nonNull(newLastModified)) {
+                            List<NormalisedDeal> deals = parse(body);
+                            remember(newEtag, newLastModified, null);
+                            return Optional.of(deals);
+                        }
+                        
+                        // No validators: the body has to be buffered so it can be hashed before parsing
+                        byte[] bytes = body.readAllBytes();
+                        byte[] hash = sha256(bytes);
+                        if (conditional && Arrays.equals(hash, contentHash)) {
+                            return Optional.empty();
+                        }
+                        List<NormalisedDeal> deals = parse(new ByteArrayInputStream(bytes));
+                        remember(null, null, hash);
+                        return Optional.of(deals);
+                    }
+                });
+    }
+    
+    private void remember(String etag, String lastModified, byte[] contentHash) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.contentHash = contentHash;
+    }
+    
+    private InputStream decode(HttpHeaders headers, InputStream body) throws IOException {
+        String encoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        return "gzip".equalsIgnoreCase(encoding) ? new GZIPInputStream(body) : body;
+    }
+    
+    private byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Parses a deal feed from a stream, restaurant by restaurant, with the configured parallelism.
+     * Produces the same deals, in the same order, as reading the whole document into a tree.
+     * @param body the JSON feed
+     * @return all normalised deals in feed order
+     */
+    public List<NormalisedDeal> parse(InputStream body) throws IOException {
+        return parse(body, urlProperties.getParseParallelism());
+    }
+    
+    /**
+     * Parses a deal feed from a stream, normalising restaurants on up to {@code parallelism} threads.
+     * JSON is always read sequentially; with a parallelism above 1 the restaurants are normalised
+     * in chunks on a fork-join pool and the chunks are appended in feed order, so the result is
+     * the same list as the sequential parse. Identical listings of a restaurant still share one
+     * instance, though which listing supplies it depends on scheduling.
+     * @param body the JSON feed
+     * @param parallelism number of normalisation threads, 1 for a sequential parse
+     * @return all normalised deals in feed order
+     */
+    public List<NormalisedDeal> parse(InputStream body, int parallelism) throws IOException {
+        long started = System.nanoTime();
+        LongAdder normalising = new LongAdder();
+        try {
+            return parallelism <= 1 ? parseSequential(body, normalising) : parseParallel(body, parallelism, normalising);
+        } catch (IOException | RuntimeException e) {
+            PipelineMetrics.parseFailed();
+            throw e;
+        } finally {
+            PipelineMetrics.Stage.PARSE.record(System.nanoTime() - started);
+            PipelineMetrics.Stage.NORMALISE_CPU.record(normalising.sum());
+        }
+    }
+    
+    private List<NormalisedDeal> parseSequential(InputStream body, LongAdder normalising) throws IOException {
+        List<NormalisedDeal> deals = new ArrayList<>();
+        // One shared Restaurant per objectId across the whole feed
+        Map<String, Restaurant> restaurants = new HashMap<>();
+        readRestaurants(body, restaurant -> deals.addAll(normalise(restaurant, restaurants, normalising)));
+        return deals;
+    }
+    
+    private List<NormalisedDeal> parseParallel(InputStream body, int parallelism, LongAdder normalising) throws IOException {
         List<NormalisedDeal> deals = new ArrayList<>();
-        JsonNode restaurantNode = root.get("restaurants");
-        if (Objects.nonNull(restaurantNode)) {
-            for (JsonNode restaurant : restaurantNode) {
-                deals.addAll(parseRestaurant(restaurant));
+        Map<String, Restaurant> restaurants = new ConcurrentHashMap<>();
+        // Chunks in feed order; bounded so the whole feed is never held as trees at once
+        Deque<CompletableFuture<List<NormalisedDeal>>> pending = new ArrayDeque<>();
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            List<JsonNode> chunk = new ArrayList<>(CHUNK_SIZE);
+            readRestaurants(body, restaurant -> {
+                chunk.add(restaurant);
+                if (chunk.size() == CHUNK_SIZE) {
+                    pending.add(submit(pool, List.copyOf(chunk), restaurants, normalising));
+                    chunk.clear();
+                    while (pending.size() > 2 * parallelism) {
+                        deals.addAll(pending.poll().join());
+                    }
+                }
+            });
+            pending.add(submit(pool, chunk, restaurants, normalising));
+            while (!pending.isEmpty()) {
+                deals.addAll(pending.poll().join());
             }
+        } catch (CompletionException e) {
+            // Surface the same exception as the sequential parse
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
         return deals;
     }
     
+    private CompletableFuture<List<NormalisedDeal>> submit(ForkJoinPool pool, List<JsonNode> chunk,
+            Map<String, Restaurant> restaurants, LongAdder normalising) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<NormalisedDeal> deals = new ArrayList<>();
+            for (JsonNode restaurant : chunk) {
+                deals.addAll(normalise(restaurant, restaurants, normalising));
+            }
+            return deals;
+        }, pool);
+    }
+    
+    private List<NormalisedDeal> normalise(JsonNode restaurant, Map<String, Restaurant> restaurants, LongAdder normalising) {
+        long started = System.nanoTime();
+        try {
+            return parseRestaurant(restaurant, restaurants);
+        } finally {
+            normalising.add(System.nanoTime() - started);
+        }
+    }
+    
+    private void readRestaurants(InputStream body, Consumer<JsonNode> restaurantSink) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"restaurants".equals(field) || !value.isStructStart()) {
+                    parser.skipChildren();
+                    continue;
+                }
+                // Only one restaurant subtree is materialised at a time
+                JsonToken end = value == JsonToken.START_ARRAY ? JsonToken.END_ARRAY : JsonToken.END_OBJECT;
+                while (parser.nextToken() != end) {
+                    if (parser.currentToken() == JsonToken.FIELD_NAME) {
+                        parser.nextToken();
+                    }
+                    JsonNode restaurant = objectMapper.readTree(parser);
+                    restaurantSink.accept(restaurant);
+                }
+            }
+        }
+    }
+    
     private String text(JsonNode dealNode, String key) {
         return dealNode.has(key) ? dealNode.get(key).asText() : null;
     }
     
-    private List<NormalisedDeal> parseRestaurant(JsonNode dealNode) {
+    private List<NormalisedDeal> parseRestaurant(JsonNode dealNode, Map<String, Restaurant> restaurants) {
         
         JsonNode deals = dealNode.get("deals");
         if (deals.size() == 0) {
@@ -62,6 +280,14 @@ public class DealLoader {
         LocalTime restaurantOpen = TimeUtils.parseTime(rOpenRaw);
         LocalTime restaurantClose = TimeUtils.parseTime(rCloseRaw);
         
+        Restaurant restaurant = new Restaurant(restaurantObjectId, restaurantName, restaurantAddress1,
+                restarantSuburb, restaurantOpen, restaurantClose);
+        if (Objects.nonNull(restaurantObjectId)) {
+            // Reuse the instance of an earlier, identical listing of the same restaurant
+            Restaurant known = restaurants.putIfAbsent(restaurantObjectId, restaurant);
+            restaurant = Objects.nonNull(known) && known.equals(restaurant) ? known : restaurant;
+        }
+        
         List<NormalisedDeal> normalisedDeals = new ArrayList<>();
         
         for (JsonNode deal : deals) {
@@ -87,19 +313,14 @@ public class DealLoader {
             int qtyLeft = deal.has("qtyLeft") ? deal.get("qtyLeft").asInt() : 0;
             
             NormalisedDeal normalisedDeal = new NormalisedDeal(
-                restaurantObjectId,
-                restaurantName,
-                restaurantAddress1,
-                restarantSuburb,
+                restaurant,
                 start,
                 end,
                 dealObjectId,
                 discount,
                 dineIn,
                 lightning,
-                qtyLeft,
-                restaurantOpen,
-                restaurantClose
+                qtyLeft
             );
             
             normalisedDeals.add(normalisedDeal);
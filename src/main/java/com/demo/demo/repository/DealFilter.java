@@ -0,0 +1,31 @@
+package com.demo.demo.repository;
+
+import java.util.Objects;
+
+/**
+ * Optional attribute filters applied on top of the time-of-day query.
+ * A null field does not filter.
+ * @param suburb restaurant suburb, matched case-insensitively
+ * @param dineIn required dine-in flag
+ * @param lightning required lightning flag
+ * @param minQty minimum qtyLeft, inclusive
+ * @param minDiscount minimum discount percentage, inclusive; deals without a numeric discount never match
+ */
+public record DealFilter(
+    String suburb,
+    Boolean dineIn,
+    Boolean lightning,
+    Integer minQty,
+    Integer minDiscount
+) {
+
+    public static final DealFilter NONE = new DealFilter(null, null, null, null, null);
+
+    /**
+     * @return true if no field filters anything
+     */
+    public boolean isEmpty() {
+        return Objects.isNull(suburb) && Objects.isNull(dineIn) && Objects.isNull(lightning)
+                && Objects.isNull(minQty) && Objects.isNull(minDiscount);
+    }
+}
@@ -1,9 +1,18 @@
 package com.demo.demo.repository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.SnapshotDiff;
 
 public interface DealsRepository {
     List<NormalisedDeal> findAllActiveDeals(String timeOfDay);
+    List<NormalisedDeal> findAllActiveDeals(String timeOfDay, DealFilter filter);
+    DealSnapshot getSnapshot();
+    int claim(String dealObjectId);
+    Optional<SnapshotDiff> changesSince(long sinceVersion, long toVersion);
+    Instant nextRefreshAt();
 }
@@ -1,46 +1,345 @@
 package com.demo.demo.repository.Impl;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
 
+import com.demo.demo.config.UrlProperties;
 import com.demo.demo.entity.NormalisedDeal;
 import com.demo.demo.http.DealLoader;
+import com.demo.demo.repository.DealFilter;
 import com.demo.demo.repository.DealsRepository;
+import com.demo.demo.repository.SnapshotRefreshedEvent;
+import com.demo.demo.repository.snapshot.ChangeLog;
+import com.demo.demo.repository.snapshot.DealInventory;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.SnapshotDiff;
+import com.demo.demo.repository.snapshot.SnapshotFile;
+import com.demo.demo.utils.PipelineMetrics;
+import com.demo.demo.utils.SingleFlight;
 import com.demo.demo.utils.TimeUtils;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Data
 @Repository
-public class CachedHttpDealsRepository implements DealsRepository{
+public class CachedHttpDealsRepository implements DealsRepository, ApplicationEventPublisherAware{
+
+    // Retries of a claim that found its inventory sealed by a refresh: a few yields, then short parks
+    private static final int CLAIM_ATTEMPTS = 100;
+    private static final int CLAIM_YIELDS = 10;
+    private static final long CLAIM_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
 
     private final DealLoader dealLoader;
+    private final UrlProperties urlProperties;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<DealSnapshot> snapshot = new AtomicReference<>();
+
+    // At most one upstream load in flight; concurrent callers share its result or failure
+    private final SingleFlight<DealSnapshot> reloads = new SingleFlight<>();
+
+    @Getter(AccessLevel.NONE)
+    private final ChangeLog changeLog = new ChangeLog();
+
+    // When the last scheduled refresh finished, successful or not; the next one starts a refresh interval later
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Instant refreshedAt;
+
+    // Writes snapshot files one at a time and in version order, off the thread that published the snapshot
+    @Getter(AccessLevel.NONE)
+    private final ExecutorService persistExecutor = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("snapshot-persist").factory());
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Future<?> lastPersist = CompletableFuture.completedFuture(null);
+
+    // The snapshot last handed to the writer and its claim count then, so claims alone trigger a rewrite
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile DealSnapshot persisted;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile long persistedClaims;
+
+    // Set by the container; null when the repository is constructed directly
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<NormalisedDeal> findAllActiveDeals(String timeOfDay) {
         try {
             LocalTime queryTime = TimeUtils.parseTime(timeOfDay);
-            
+            DealSnapshot current = currentSnapshot();
+
             if (Objects.isNull(queryTime)) {
-                return dealLoader.loadAll();
+                return current.deals();
             }
-            
-            return dealLoader.loadAll().stream()
-                    .filter(deal -> {
-                        LocalTime dealStart = Objects.nonNull(deal.start()) ? deal.start() : deal.restaurantOpen();
-                        LocalTime dealEnd = Objects.nonNull(deal.end()) ? deal.end() : deal.restaurantClose();
-                        if (dealStart == null || dealEnd == null) {
-                            return false;
-                        }
-                        return !queryTime.isBefore(dealStart) && !queryTime.isAfter(dealEnd);
-                    })
-                    .toList();
+
+            return current.activeAt(queryTime);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load deals", e);
+        }
+    }
+
+    @Override
+    public List<NormalisedDeal> findAllActiveDeals(String timeOfDay, DealFilter filter) {
+        try {
+            int minuteOfDay = TimeUtils.parseMinuteOfDay(timeOfDay);
+            return currentSnapshot().activeAt(minuteOfDay, filter);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load deals", e);
+        }
+    }
+
+    @Override
+    public DealSnapshot getSnapshot() {
+        try {
+            return currentSnapshot();
         } catch (Exception e) {
             throw new RuntimeException("Failed to load deals", e);
         }
     }
 
+    /**
+     * Claims one unit of a deal in the current snapshot's inventory.
+     * A claim that races with a refresh is retried against the snapshot that replaced it. The refresh
+     * publishes that snapshot right after sealing the old inventory, so retries yield and then park
+     * briefly rather than spin, and give up after {@link #CLAIM_ATTEMPTS} tries.
+     * @param dealObjectId the deal's objectId
+     * @return units left after the claim, or {@link DealInventory#SOLD_OUT}
+     * @throws java.util.NoSuchElementException if the current snapshot has no such deal
+     * @throws IllegalStateException if the inventory stayed sealed for every attempt
+     */
+    @Override
+    public int claim(String dealObjectId) {
+        for (int attempt = 1; ; attempt++) {
+            DealSnapshot current;
+            try {
+                current = currentSnapshot();
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to load deals", e);
+            }
+            int left = current.inventory().claim(dealObjectId);
+            if (left != DealInventory.MOVED) {
+                return left;
+            }
+            if (attempt == CLAIM_ATTEMPTS) {
+                throw new IllegalStateException("Deal inventory of snapshot version " + current.version() + " was sealed but not replaced");
+            }
+            if (attempt < CLAIM_YIELDS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(CLAIM_BACKOFF_NANOS);
+            }
+        }
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Returns the deals that changed between two snapshot versions.
+     * @param sinceVersion the version the caller holds
+     * @param toVersion the version to sync to, normally the current snapshot's
+     * @return the changes, or empty if the change history no longer reaches back to {@code sinceVersion}
+     */
+    @Override
+    public Optional<SnapshotDiff> changesSince(long sinceVersion, long toVersion) {
+        return changeLog.since(sinceVersion, toVersion);
+    }
+
+    /**
+     * Restores the snapshot persisted by a previous run, if any, so requests are served from
+     * local disk while the first scheduled refresh fetches the feed in the background.
+     * A missing, corrupt or incompatible file is ignored and the first request loads the feed.
+     */
+    @PostConstruct
+    public void restore() {
+        Path file = urlProperties.getSnapshotFile();
+        if (Objects.isNull(file) || !Files.exists(file)) {
+            return;
+        }
+        try {
+            DealSnapshot restored = SnapshotFile.read(file, urlProperties.getSnapshotLayout(), urlProperties.getActivityTableBudget());
+            // A load that finished first wins; the persisted copy can only be older
+            if (snapshot.compareAndSet(null, restored)) {
+                log.info("Restored {} deals from {} (snapshot version {})", restored.store().size(), file, restored.version());
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable snapshot file {}", file, e);
+        }
+    }
+
+    /**
+     * Refreshes the snapshot in the background.
+     * If the load fails the previous snapshot keeps serving (stale-while-revalidate).
+     * Claims made since the last snapshot file write are persisted as well, even if the feed is unchanged.
+     */
+    @Scheduled(fixedDelayString = "${data.refresh-interval:PT5M}")
+    public void refresh() {
+        try {
+            reloads.execute(this::reload);
+            persistClaims();
+        } catch (Exception e) {
+            DealSnapshot current = snapshot.get();
+            log.warn("Failed to refresh deals, still serving snapshot version {}",
+                    Objects.nonNull(current) ? current.version() : "none", e);
+        } finally {
+            refreshedAt = Instant.now();
+        }
+    }
+
+    /**
+     * Returns when the next scheduled refresh is due. Refreshes run with a fixed delay, so this is
+     * a refresh interval after the last one finished, whether or not the feed had changed.
+     * @return the time of the next refresh, or null if no scheduled refresh has run yet
+     */
+    @Override
+    public Instant nextRefreshAt() {
+        Instant last = refreshedAt;
+        return Objects.nonNull(last) ? last.plus(urlProperties.getRefreshInterval()) : null;
+    }
+
+    /**
+     * Returns the current snapshot without loading one.
+     * @return the current snapshot, or null if nothing has been loaded yet
+     */
+    public DealSnapshot peekSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Returns the current snapshot, loading it synchronously if nothing has been loaded yet.
+     * @return the current snapshot
+     * @throws Exception if the initial load fails
+     */
+    DealSnapshot currentSnapshot() throws Exception {
+        DealSnapshot current = snapshot.get();
+        return Objects.nonNull(current) ? current : reloads.execute(this::reload);
+    }
+
+    private DealSnapshot reload() throws Exception {
+        DealSnapshot previous = snapshot.get();
+        if (Objects.isNull(previous)) {
+            return swap(null, dealLoader.loadAll());
+        }
+        Optional<List<NormalisedDeal>> changed = dealLoader.loadIfChanged();
+        if (changed.isEmpty()) {
+            log.debug("Deal feed unchanged, keeping snapshot version {}", previous.version());
+            return previous;
+        }
+        return swap(previous, changed.get());
+    }
+
+    private DealSnapshot swap(DealSnapshot previous, List<NormalisedDeal> deals) {
+        long version = Objects.nonNull(previous) ? previous.version() + 1 : 1;
+        DealSnapshot next = PipelineMetrics.Stage.BUILD.time(() -> DealSnapshot.of(version, deals,
+                urlProperties.getSnapshotLayout(), urlProperties.getActivityTableBudget()));
+        SnapshotDiff diff = null;
+        if (Objects.nonNull(previous)) {
+            // Diffed and recorded before publishing, so every published version can be diffed against
+            diff = SnapshotDiff.between(previous, next);
+            changeLog.append(diff, urlProperties.getChangeHistory());
+            // Claims made so far carry over; claims racing with the move retry on the new snapshot,
+            // so nothing may run between sealing the old inventory and publishing the new one
+            next.inventory().takeOver(previous.inventory());
+        }
+        // Readers never block: they keep whichever snapshot they already hold
+        snapshot.set(next);
+        if (Objects.nonNull(diff) && !diff.isEmpty() && Objects.nonNull(eventPublisher)) {
+            eventPublisher.publishEvent(new SnapshotRefreshedEvent(previous, next, diff));
+        }
+        // A cold-start request waiting on this load must not also wait for the disk
+        persistAsync(next);
+        return next;
+    }
+
+    /**
+     * Waits for the snapshot file of the latest published snapshot to be written.
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if the write task failed
+     */
+    public void awaitPersisted() throws InterruptedException, ExecutionException {
+        lastPersist.get();
+    }
+
+    /**
+     * Writes any claims not yet persisted and lets pending snapshot writes finish before shutdown,
+     * so the next start restores the latest version and quantities.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        persistClaims();
+        persistExecutor.shutdown();
+        if (!persistExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Snapshot file write did not finish before shutdown");
+        }
+    }
+
+    private void persistAsync(DealSnapshot next) {
+        persisted = next;
+        persistedClaims = next.inventory().version();
+        lastPersist = persistExecutor.submit(() -> persist(next));
+    }
+
+    // Rewrites the current snapshot if claims changed its quantities since it was last handed to the writer
+    private void persistClaims() {
+        DealSnapshot current = snapshot.get();
+        if (Objects.isNull(current) || Objects.isNull(urlProperties.getSnapshotFile())) {
+            return;
+        }
+        long written = current == persisted ? persistedClaims : 0;
+        if (current.inventory().version() != written) {
+            persistAsync(current);
+        }
+    }
+
+    private void persist(DealSnapshot next) {
+        Path file = urlProperties.getSnapshotFile();
+        // A newer snapshot has been published since, and its own write is queued behind this one
+        if (Objects.isNull(file) || next != snapshot.get()) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            SnapshotFile.write(file, next);
+            PipelineMetrics.Stage.PERSIST.record(System.nanoTime() - started);
+        } catch (IOException e) {
+            // The in-memory snapshot is already live; only the next restart loses its warm start
+            log.warn("Failed to persist snapshot version {} to {}", next.version(), file, e);
+        }
+    }
+
 }
@@ -0,0 +1,17 @@
+package com.demo.demo.repository;
+
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.SnapshotDiff;
+
+/**
+ * Published after a refresh has replaced the snapshot with one whose deals differ.
+ * Listeners run on the refreshing thread, so they should hand off any slow work.
+ * @param previous the snapshot that was replaced
+ * @param current the snapshot now being served
+ * @param diff deals added, modified and removed between the two
+ */
+public record SnapshotRefreshedEvent(
+    DealSnapshot previous,
+    DealSnapshot current,
+    SnapshotDiff diff
+) {}
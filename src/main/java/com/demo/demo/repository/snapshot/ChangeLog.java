@@ -0,0 +1,89 @@
+package com.demo.demo.repository.snapshot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bounded history of the diffs between consecutive snapshots.
+ * The history is an immutable list replaced on every append, so readers never lock.
+ */
+public final class ChangeLog {
+
+    private final AtomicReference<List<SnapshotDiff>> diffs = new AtomicReference<>(List.of());
+
+    /**
+     * Appends the diff of a new snapshot, dropping the oldest diffs beyond the capacity.
+     * A diff that does not follow the latest one (e.g. after a restore) starts a new history.
+     * @param diff diff from the previous snapshot to the new one
+     * @param capacity maximum number of diffs to keep
+     */
+    public void append(SnapshotDiff diff, int capacity) {
+        diffs.updateAndGet(current -> {
+            List<SnapshotDiff> next = new ArrayList<>(current.size() + 1);
+            if (!current.isEmpty() && current.get(current.size() - 1).toVersion() == diff.fromVersion()) {
+                next.addAll(current.subList(Math.max(0, current.size() + 1 - capacity), current.size()));
+            }
+            if (capacity > 0) {
+                next.add(diff);
+            }
+            return List.copyOf(next);
+        });
+    }
+
+    /**
+     * Combines the diffs from {@code sinceVersion} up to {@code toVersion} into one.
+     * A deal that was added and then removed does not appear; one that was removed and added back
+     * is reported as modified.
+     * @param sinceVersion the version the client holds
+     * @param toVersion the version to sync to
+     * @return the combined diff, or empty if the history no longer covers {@code sinceVersion}
+     */
+    public Optional<SnapshotDiff> since(long sinceVersion, long toVersion) {
+        if (sinceVersion == toVersion) {
+            return Optional.of(new SnapshotDiff(sinceVersion, toVersion, List.of(), List.of(), List.of()));
+        }
+        List<SnapshotDiff> history = diffs.get();
+        int first = -1;
+        for (int i = 0; i < history.size(); i++) {
+            if (history.get(i).fromVersion() == sinceVersion) {
+                first = i;
+                break;
+            }
+        }
+        if (first < 0 || sinceVersion > toVersion) {
+            return Optional.empty();
+        }
+
+        // Per deal: whether it existed at sinceVersion, and whether it exists now
+        Map<String, boolean[]> states = new LinkedHashMap<>();
+        long reached = sinceVersion;
+        for (int i = first; i < history.size() && history.get(i).toVersion() <= toVersion; i++) {
+            SnapshotDiff diff = history.get(i);
+            diff.added().forEach(id -> states.computeIfAbsent(id, k -> new boolean[] {false, false})[1] = true);
+            diff.modified().forEach(id -> states.computeIfAbsent(id, k -> new boolean[] {true, true}));
+            diff.removed().forEach(id -> states.computeIfAbsent(id, k -> new boolean[] {true, true})[1] = false);
+            reached = diff.toVersion();
+        }
+        if (reached != toVersion) {
+            return Optional.empty();
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> modified = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        states.forEach((id, state) -> {
+            if (state[0] && state[1]) {
+                modified.add(id);
+            } else if (state[1]) {
+                added.add(id);
+            } else if (state[0]) {
+                removed.add(id);
+            }
+        });
+        return Optional.of(new SnapshotDiff(sinceVersion, toVersion, List.copyOf(added), List.copyOf(modified), List.copyOf(removed)));
+    }
+}
@@ -0,0 +1,148 @@
+package com.demo.demo.repository.snapshot;
+
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.entity.Restaurant;
+import com.demo.demo.utils.TimeUtils;
+
+/**
+ * Stores deals column-wise instead of as one record per deal.
+ * Times are {@code short} minutes of the day (-1 for none), flags are bitsets, and each row
+ * points into a deduplicated table of {@link Restaurant}s. {@link NormalisedDeal} objects are only built for the rows that
+ * are read. Times keep minute precision, which is all the loader produces.
+ */
+final class ColumnarDealStore implements DealStore {
+
+    // Shared LocalTime per minute, so materialising a row does not allocate times
+    private static final LocalTime[] TIMES = new LocalTime[DealTimeIndex.MINUTES_PER_DAY];
+
+    static {
+        for (int minute = 0; minute < TIMES.length; minute++) {
+            TIMES[minute] = TimeUtils.fromMinuteOfDay(minute);
+        }
+    }
+
+    private final int size;
+    private final int[] restaurant;
+    private final short[] start;
+    private final short[] end;
+    private final String[] dealObjectId;
+    private final String[] discount;
+    private final BitSet dineIn;
+    private final BitSet lightning;
+    private final int[] qtyLeft;
+
+    private final Restaurant[] restaurants;
+    private final short[] restaurantOpen;
+    private final short[] restaurantClose;
+
+    private final List<NormalisedDeal> view = new Rows();
+
+    private ColumnarDealStore(List<NormalisedDeal> deals) {
+        this.size = deals.size();
+        this.restaurant = new int[size];
+        this.start = new short[size];
+        this.end = new short[size];
+        this.dealObjectId = new String[size];
+        this.discount = new String[size];
+        this.dineIn = new BitSet(size);
+        this.lightning = new BitSet(size);
+        this.qtyLeft = new int[size];
+
+        Map<Restaurant, Integer> restaurantIndex = new HashMap<>();
+        List<Restaurant> restaurantRows = new ArrayList<>();
+        // Discounts repeat a handful of values, so they are shared too
+        Map<String, String> discounts = new HashMap<>();
+        for (int pos = 0; pos < size; pos++) {
+            NormalisedDeal deal = deals.get(pos);
+            restaurant[pos] = restaurantIndex.computeIfAbsent(deal.restaurant(), k -> {
+                restaurantRows.add(k);
+                return restaurantRows.size() - 1;
+            });
+            start[pos] = minute(deal.start());
+            end[pos] = minute(deal.end());
+            dealObjectId[pos] = deal.dealObjectId();
+            discount[pos] = Objects.isNull(deal.discount()) ? null : discounts.computeIfAbsent(deal.discount(), d -> d);
+            dineIn.set(pos, deal.dineIn());
+            lightning.set(pos, deal.lightning());
+            qtyLeft[pos] = deal.qtyLeft();
+        }
+
+        this.restaurants = restaurantRows.toArray(Restaurant[]::new);
+        this.restaurantOpen = new short[restaurants.length];
+        this.restaurantClose = new short[restaurants.length];
+        for (int r = 0; r < restaurants.length; r++) {
+            restaurantOpen[r] = minute(restaurants[r].open());
+            restaurantClose[r] = minute(restaurants[r].close());
+        }
+    }
+
+    static ColumnarDealStore of(List<NormalisedDeal> deals) {
+        return new ColumnarDealStore(deals);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public NormalisedDeal get(int position) {
+        return new NormalisedDeal(
+            restaurants[restaurant[position]],
+            time(start[position]),
+            time(end[position]),
+            dealObjectId[position],
+            discount[position],
+            dineIn.get(position),
+            lightning.get(position),
+            qtyLeft[position]
+        );
+    }
+
+    @Override
+    public int startMinute(int position) {
+        return start[position] >= 0 ? start[position] : restaurantOpen[restaurant[position]];
+    }
+
+    @Override
+    public int endMinute(int position) {
+        return end[position] >= 0 ? end[position] : restaurantClose[restaurant[position]];
+    }
+
+    @Override
+    public List<NormalisedDeal> asList() {
+        return view;
+    }
+
+    private static short minute(LocalTime time) {
+        return (short) TimeUtils.toMinuteOfDay(time);
+    }
+
+    private static LocalTime time(short minute) {
+        return minute >= 0 ? TIMES[minute] : null;
+    }
+
+    // Read-only list view that materialises each row on access
+    private final class Rows extends AbstractList<NormalisedDeal> implements RandomAccess {
+
+        @Override
+        public NormalisedDeal get(int index) {
+            return ColumnarDealStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
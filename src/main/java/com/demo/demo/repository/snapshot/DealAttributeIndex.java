@@ -0,0 +1,155 @@
+package com.demo.demo.repository.snapshot;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.repository.DealFilter;
+
+/**
+ * Secondary indexes over deal attributes, built once per snapshot.
+ * The boolean flags are bitsets and suburbs have an inverted index (suburb to bitset), so the
+ * set-valued predicates of a {@link DealFilter} combine into one mask with word-wide AND/ANDNOT.
+ * qtyLeft and the numeric discount are primitive columns checked only for the candidates the
+ * time-of-day query returned. No {@link NormalisedDeal} is read at query time.
+ */
+public final class DealAttributeIndex {
+
+    private static final BitSet EMPTY = new BitSet();
+
+    private final int size;
+    private final BitSet dineIn;
+    private final BitSet lightning;
+    private final Map<String, BitSet> bySuburb;
+    private final int[] qtyLeft;
+    private final int[] discount;
+
+    private DealAttributeIndex(int size, BitSet dineIn, BitSet lightning, Map<String, BitSet> bySuburb, int[] qtyLeft, int[] discount) {
+        this.size = size;
+        this.dineIn = dineIn;
+        this.lightning = lightning;
+        this.bySuburb = bySuburb;
+        this.qtyLeft = qtyLeft;
+        this.discount = discount;
+    }
+
+    /**
+     * Builds the indexes over every deal in the store.
+     * @param store the snapshot's deals
+     * @return the index
+     */
+    public static DealAttributeIndex build(DealStore store) {
+        int size = store.size();
+        BitSet dineIn = new BitSet(size);
+        BitSet lightning = new BitSet(size);
+        Map<String, BitSet> bySuburb = new HashMap<>();
+        int[] qtyLeft = new int[size];
+        int[] discount = new int[size];
+        for (int pos = 0; pos < size; pos++) {
+            NormalisedDeal deal = store.get(pos);
+            dineIn.set(pos, deal.dineIn());
+            lightning.set(pos, deal.lightning());
+            if (Objects.nonNull(deal.restaurantSuburb())) {
+                bySuburb.computeIfAbsent(suburbKey(deal.restaurantSuburb()), s -> new BitSet(size)).set(pos);
+            }
+            qtyLeft[pos] = deal.qtyLeft();
+            discount[pos] = parseDiscount(deal.discount());
+        }
+        return new DealAttributeIndex(size, dineIn, lightning, bySuburb, qtyLeft, discount);
+    }
+
+    /**
+     * Keeps the positions that match the filter.
+     * @param positions candidate positions in ascending order, e.g. the deals active at a minute
+     * @param filter the attribute filter
+     * @return the matching positions, in the same order
+     */
+    public int[] select(int[] positions, DealFilter filter) {
+        BitSet mask = mask(filter);
+        int[] result = new int[positions.length];
+        int count = 0;
+        for (int pos : positions) {
+            if ((Objects.isNull(mask) || mask.get(pos)) && matchesNumeric(pos, filter)) {
+                result[count++] = pos;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Selects the matching positions among all deals.
+     * @param filter the attribute filter
+     * @return the matching positions in ascending order
+     */
+    public int[] selectAll(DealFilter filter) {
+        BitSet mask = mask(filter);
+        if (Objects.isNull(mask)) {
+            mask = new BitSet(size);
+            mask.set(0, size);
+        }
+        int[] result = new int[mask.cardinality()];
+        int count = 0;
+        for (int pos = mask.nextSetBit(0); pos >= 0; pos = mask.nextSetBit(pos + 1)) {
+            if (matchesNumeric(pos, filter)) {
+                result[count++] = pos;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Intersection of the bitset predicates, or null if the filter has none
+    private BitSet mask(DealFilter filter) {
+        BitSet mask = null;
+        if (Objects.nonNull(filter.suburb())) {
+            mask = (BitSet) bySuburb.getOrDefault(suburbKey(filter.suburb()), EMPTY).clone();
+        }
+        if (Objects.nonNull(filter.dineIn())) {
+            mask = apply(mask, dineIn, filter.dineIn());
+        }
+        if (Objects.nonNull(filter.lightning())) {
+            mask = apply(mask, lightning, filter.lightning());
+        }
+        return mask;
+    }
+
+    private BitSet apply(BitSet mask, BitSet flag, boolean required) {
+        if (Objects.isNull(mask)) {
+            mask = new BitSet(size);
+            mask.set(0, size);
+        }
+        if (required) {
+            mask.and(flag);
+        } else {
+            mask.andNot(flag);
+        }
+        return mask;
+    }
+
+    private boolean matchesNumeric(int pos, DealFilter filter) {
+        return (Objects.isNull(filter.minQty()) || qtyLeft[pos] >= filter.minQty())
+                && (Objects.isNull(filter.minDiscount()) || discount[pos] >= 0 && discount[pos] >= filter.minDiscount());
+    }
+
+    private static String suburbKey(String suburb) {
+        return suburb.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Leading digits of the discount ("50", "50%"), or -1 if there are none
+    private static int parseDiscount(String discount) {
+        if (Objects.isNull(discount)) {
+            return -1;
+        }
+        String raw = discount.trim();
+        int value = 0;
+        int digits = 0;
+        while (digits < raw.length() && digits < 9 && raw.charAt(digits) >= '0' && raw.charAt(digits) <= '9') {
+            value = value * 10 + (raw.charAt(digits) - '0');
+            digits++;
+        }
+        return digits > 0 ? value : -1;
+    }
+}
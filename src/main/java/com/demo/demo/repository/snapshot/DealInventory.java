@@ -0,0 +1,173 @@
+package com.demo.demo.repository.snapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.demo.demo.entity.NormalisedDeal;
+
+/**
+ * Live remaining quantity of every deal in a snapshot, indexed by deal position.
+ * Starts from the feed's {@code qtyLeft} and is decremented by claims with a CAS loop, so a deal
+ * is never claimed more often than it has units left, however many threads race for it.
+ * <p>
+ * When a refresh replaces the snapshot, {@link #takeOver} moves the claims into the next
+ * inventory slot by slot. Each old slot is sealed atomically as it is moved (stored as
+ * {@code ~remaining}, which is always negative), so a claim either lands before the move and is
+ * carried over, or sees the seal and has to be retried against the next snapshot.
+ * <p>
+ * The feed is authoritative. Upstream is expected to count our claims, so as soon as the feed
+ * reports a new quantity for a deal, that quantity replaces the local one. Local claims are
+ * carried over only while the feed still reports the same quantity as before, that is, the claims
+ * made since the feed last changed the deal.
+ */
+public final class DealInventory {
+
+    /** Returned by {@link #claim} when the deal has no units left. */
+    public static final int SOLD_OUT = -1;
+    /** Returned by {@link #claim} when the inventory has been moved to a newer snapshot. */
+    public static final int MOVED = Integer.MIN_VALUE;
+
+    private final AtomicIntegerArray remaining;
+    private final int[] feedQty;
+    private final String[] dealObjectIds;
+    private final Map<String, Integer> positions;
+    private final LongAdder claims = new LongAdder();
+
+    private DealInventory(String[] dealObjectIds, int[] feedQty) {
+        this.dealObjectIds = dealObjectIds;
+        this.feedQty = feedQty;
+        this.remaining = new AtomicIntegerArray(feedQty);
+        this.positions = new HashMap<>(dealObjectIds.length * 2);
+        for (int pos = dealObjectIds.length - 1; pos >= 0; pos--) {
+            // A repeated objectId resolves to its first listing
+            if (Objects.nonNull(dealObjectIds[pos])) {
+                positions.put(dealObjectIds[pos], pos);
+            }
+        }
+    }
+
+    /**
+     * Builds an inventory holding the feed quantities of the stored deals.
+     * @param store the snapshot's deals
+     * @return the inventory
+     */
+    static DealInventory build(DealStore store) {
+        String[] ids = new String[store.size()];
+        int[] qty = new int[store.size()];
+        for (int pos = 0; pos < store.size(); pos++) {
+            NormalisedDeal deal = store.get(pos);
+            ids[pos] = deal.dealObjectId();
+            qty[pos] = Math.max(deal.qtyLeft(), 0);
+        }
+        return new DealInventory(ids, qty);
+    }
+
+    /**
+     * Claims one unit of a deal.
+     * @param dealObjectId the deal's objectId
+     * @return units left after the claim, {@link #SOLD_OUT}, or {@link #MOVED} if the claim must be
+     *         retried against the current snapshot
+     * @throws NoSuchElementException if the snapshot has no such deal
+     */
+    public int claim(String dealObjectId) {
+        Integer pos = Objects.nonNull(dealObjectId) ? positions.get(dealObjectId) : null;
+        if (Objects.isNull(pos)) {
+            throw new NoSuchElementException("Unknown deal: " + dealObjectId);
+        }
+        while (true) {
+            int left = remaining.get(pos);
+            if (left < 0) {
+                return MOVED;
+            }
+            if (left == 0) {
+                return SOLD_OUT;
+            }
+            if (remaining.compareAndSet(pos, left, left - 1)) {
+                claims.increment();
+                return left - 1;
+            }
+        }
+    }
+
+    /**
+     * @param pos deal position
+     * @return units left, reflecting every claim made so far
+     */
+    public int remaining(int pos) {
+        int left = remaining.get(pos);
+        return left < 0 ? ~left : left;
+    }
+
+    /**
+     * @param pos deal position
+     * @return the deal's objectId, or null if it has none
+     */
+    public String dealObjectId(int pos) {
+        return dealObjectIds[pos];
+    }
+
+    /**
+     * @param dealObjectId the deal's objectId
+     * @return position of the deal's first listing, or -1 if the snapshot has no such deal
+     */
+    public int positionOf(String dealObjectId) {
+        Integer pos = Objects.nonNull(dealObjectId) ? positions.get(dealObjectId) : null;
+        return Objects.nonNull(pos) ? pos : -1;
+    }
+
+    /**
+     * @return number of successful claims against this inventory; changes whenever a quantity does
+     */
+    public long version() {
+        return claims.sum();
+    }
+
+    /**
+     * Sets the remaining quantities recorded by a snapshot file, before the snapshot is published.
+     * Each is clamped to the deal's feed quantity.
+     * @param live remaining quantity of each deal, by position
+     */
+    void restore(int[] live) {
+        for (int pos = 0; pos < feedQty.length; pos++) {
+            int left = Math.min(Math.max(live[pos], 0), feedQty[pos]);
+            if (left != feedQty[pos]) {
+                remaining.set(pos, left);
+                claims.add(feedQty[pos] - left);
+            }
+        }
+    }
+
+    /**
+     * Moves the claims of a previous snapshot's inventory into this one.
+     * If the feed reports the same quantity for a deal as in the previous snapshot, the deal keeps
+     * its remaining quantity, so every claim made since the feed last changed still counts. If the
+     * feed reports a different quantity, upstream has caught up and the new quantity is used as is.
+     * Every slot of the previous inventory is sealed, so claims still racing against it are retried.
+     * Must be called before this inventory's snapshot is published.
+     * @param previous inventory of the snapshot being replaced
+     */
+    public void takeOver(DealInventory previous) {
+        for (int oldPos = 0; oldPos < previous.dealObjectIds.length; oldPos++) {
+            int oldLeft = previous.remaining.getAndUpdate(oldPos, left -> left < 0 ? left : ~left);
+            if (oldLeft < 0) {
+                // Already moved to another snapshot
+                continue;
+            }
+            String id = previous.dealObjectIds[oldPos];
+            // Only the claimable (first) listing of an objectId can carry claims
+            if (oldLeft == previous.feedQty[oldPos] || Objects.isNull(id) || previous.positions.get(id) != oldPos) {
+                continue;
+            }
+            Integer pos = positions.get(id);
+            // A changed feed quantity already accounts for the claims upstream knows about
+            if (Objects.nonNull(pos) && feedQty[pos] == previous.feedQty[oldPos]) {
+                remaining.set(pos, oldLeft);
+                claims.add(feedQty[pos] - oldLeft);
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.demo.demo.repository.snapshot;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.repository.DealFilter;
+import com.demo.demo.utils.TimeUtils;
+
+/**
+ * Immutable, point-in-time view of all normalised deals.
+ * A new snapshot is built on every successful load and swapped in atomically,
+ * so readers holding a reference always see a consistent deal set.
+ * Lookup structures are derived once here rather than per request.
+ * The one mutable part is the {@link DealInventory}: deals returned from a snapshot carry their
+ * live remaining quantity rather than the feed's.
+ */
+public final class DealSnapshot {
+
+    private final long version;
+    private final Instant loadedAt;
+    private final DealStore store;
+    private final List<NormalisedDeal> deals;
+    private final DealTimeIndex timeIndex;
+    private final MinuteActivityTable activityTable;
+    private final OverlapProfile overlapProfile;
+    private final DealAttributeIndex attributeIndex;
+    private final DealInventory inventory;
+    private final long[] contentHashes;
+
+    private DealSnapshot(long version, Instant loadedAt, DealStore store, long activityTableBudget) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.store = store;
+        this.deals = store.asList();
+
+        int[] starts = new int[store.size()];
+        int[] ends = new int[store.size()];
+        for (int pos = 0; pos < store.size(); pos++) {
+            // If start/end is null, the store falls back to restaurant open/close times
+            starts[pos] = store.startMinute(pos);
+            ends[pos] = store.endMinute(pos);
+        }
+        this.timeIndex = DealTimeIndex.build(starts, ends);
+        this.activityTable = MinuteActivityTable.build(starts, ends, timeIndex, activityTableBudget);
+        this.overlapProfile = OverlapProfile.build(starts, ends);
+        this.attributeIndex = DealAttributeIndex.build(store);
+        this.inventory = DealInventory.build(store);
+        this.contentHashes = new long[store.size()];
+        for (int pos = 0; pos < store.size(); pos++) {
+            contentHashes[pos] = SnapshotDiff.contentHash(store.get(pos));
+        }
+    }
+
+    /**
+     * Builds a snapshot over the given deals, keeping them as records.
+     * @param version monotonically increasing snapshot version
+     * @param deals the normalised deals, in feed order
+     * @return the snapshot
+     */
+    public static DealSnapshot of(long version, List<NormalisedDeal> deals) {
+        return of(version, deals, DealStore.Layout.LIST);
+    }
+
+    /**
+     * Builds a snapshot over the given deals, stored in the given layout.
+     * @param version monotonically increasing snapshot version
+     * @param deals the normalised deals, in feed order
+     * @param layout memory layout of the deals
+     * @return the snapshot
+     */
+    public static DealSnapshot of(long version, List<NormalisedDeal> deals, DealStore.Layout layout) {
+        return of(version, deals, layout, MinuteActivityTable.DEFAULT_MAX_STORED_POSITIONS);
+    }
+
+    /**
+     * Builds a snapshot over the given deals, stored in the given layout.
+     * @param version monotonically increasing snapshot version
+     * @param deals the normalised deals, in feed order
+     * @param layout memory layout of the deals
+     * @param activityTableBudget most positions the per-minute activity table may store
+     * @return the snapshot
+     */
+    public static DealSnapshot of(long version, List<NormalisedDeal> deals, DealStore.Layout layout, long activityTableBudget) {
+        return new DealSnapshot(version, Instant.now(), DealStore.of(deals, layout), activityTableBudget);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Instant loadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * @return all deals in feed order; with a columnar store, rows are materialised as they are read
+     */
+    public List<NormalisedDeal> deals() {
+        if (inventory.version() == 0) {
+            return deals;
+        }
+        List<NormalisedDeal> result = new ArrayList<>(deals.size());
+        for (int pos = 0; pos < deals.size(); pos++) {
+            result.add(row(pos));
+        }
+        return result;
+    }
+
+    public DealStore store() {
+        return store;
+    }
+
+    public DealTimeIndex timeIndex() {
+        return timeIndex;
+    }
+
+    public MinuteActivityTable activityTable() {
+        return activityTable;
+    }
+
+    public OverlapProfile overlapProfile() {
+        return overlapProfile;
+    }
+
+    /**
+     * Builds the overlap profile of the deals matching the filter, with one primitive sweep
+     * over just those deals.
+     * @param filter the attribute filter; minQty is checked against live quantities
+     * @return the profile; the precomputed one if the filter is empty
+     */
+    public OverlapProfile overlapProfile(DealFilter filter) {
+        if (filter.isEmpty()) {
+            return overlapProfile;
+        }
+        int[] positions = withLiveMinQty(attributeIndex.selectAll(filter), filter);
+        int[] starts = new int[positions.length];
+        int[] ends = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            starts[i] = store.startMinute(positions[i]);
+            ends[i] = store.endMinute(positions[i]);
+        }
+        return OverlapProfile.build(starts, ends);
+    }
+
+    public DealAttributeIndex attributeIndex() {
+        return attributeIndex;
+    }
+
+    public DealInventory inventory() {
+        return inventory;
+    }
+
+    /**
+     * @param pos deal position
+     * @return hash of the deal as the feed listed it, used to diff snapshots
+     */
+    public long contentHash(int pos) {
+        return contentHashes[pos];
+    }
+
+    /**
+     * Looks up a deal by objectId.
+     * @param dealObjectId the deal's objectId
+     * @return the deal's first listing with its live quantity, or null if the snapshot has no such deal
+     */
+    public NormalisedDeal find(String dealObjectId) {
+        int pos = inventory.positionOf(dealObjectId);
+        return pos >= 0 ? row(pos) : null;
+    }
+
+    /**
+     * Finds the deals active at the given time, inclusive of start and end.
+     * @param time the query time (minute precision)
+     * @return active deals in feed order
+     */
+    public List<NormalisedDeal> activeAt(LocalTime time) {
+        return activeAt(TimeUtils.toMinuteOfDay(time));
+    }
+
+    /**
+     * Finds the deals active at the given minute of the day, inclusive of start and end.
+     * @param minuteOfDay the query minute, 0..1439
+     * @return active deals in feed order
+     */
+    public List<NormalisedDeal> activeAt(int minuteOfDay) {
+        return materialise(activityTable.activeAt(minuteOfDay));
+    }
+
+    /**
+     * Finds the deals active at the given minute that also match the filter.
+     * The time-of-day result is intersected with the attribute indexes before any deal is read.
+     * @param minuteOfDay the query minute, 0..1439, or -1 for the whole day
+     * @param filter the attribute filter
+     * @return matching deals in feed order
+     */
+    public List<NormalisedDeal> activeAt(int minuteOfDay, DealFilter filter) {
+        if (filter.isEmpty()) {
+            return minuteOfDay < 0 ? deals() : activeAt(minuteOfDay);
+        }
+        return materialise(minuteOfDay < 0
+                ? attributeIndex.selectAll(filter)
+                : attributeIndex.select(activityTable.activeAt(minuteOfDay), filter), filter);
+    }
+
+    /**
+     * Finds the positions of the deals active at the given minute that match the filter,
+     * without materialising any deal.
+     * @param minuteOfDay the query minute, 0..1439
+     * @param filter the attribute filter; minQty is checked against live quantities
+     * @return matching positions in ascending (feed) order; must not be modified
+     */
+    public int[] positionsActiveAt(int minuteOfDay, DealFilter filter) {
+        int[] active = activityTable.activeAt(minuteOfDay);
+        if (filter.isEmpty()) {
+            return active;
+        }
+        return withLiveMinQty(attributeIndex.select(active, filter), filter);
+    }
+
+    // The attribute index holds feed quantities, so minQty is re-checked against the live ones
+    private int[] withLiveMinQty(int[] positions, DealFilter filter) {
+        if (Objects.isNull(filter.minQty()) || inventory.version() == 0) {
+            return positions;
+        }
+        return Arrays.stream(positions).filter(pos -> inventory.remaining(pos) >= filter.minQty()).toArray();
+    }
+
+    /**
+     * Finds the deals active at any point in [from, to] that match the filter,
+     * inclusive of deal start and end, through an overlap query on the interval index.
+     * @param from first minute of the range, 0..1439
+     * @param to last minute of the range, not before {@code from}
+     * @param filter the attribute filter
+     * @return matching deals in feed order
+     */
+    public List<NormalisedDeal> activeBetween(int from, int to, DealFilter filter) {
+        int[] positions = timeIndex.activeBetween(from, to);
+        return filter.isEmpty() ? materialise(positions) : materialise(attributeIndex.select(positions, filter), filter);
+    }
+
+    private List<NormalisedDeal> materialise(int[] positions) {
+        List<NormalisedDeal> result = new ArrayList<>(positions.length);
+        for (int pos : positions) {
+            result.add(row(pos));
+        }
+        return result;
+    }
+
+    // As withLiveMinQty, on deals that already carry their live quantity
+    private List<NormalisedDeal> materialise(int[] positions, DealFilter filter) {
+        List<NormalisedDeal> result = materialise(positions);
+        if (Objects.nonNull(filter.minQty()) && inventory.version() != 0) {
+            result.removeIf(deal -> deal.qtyLeft() < filter.minQty());
+        }
+        return result;
+    }
+
+    /**
+     * @param pos deal position
+     * @return the deal at the position, with its live quantity
+     */
+    public NormalisedDeal row(int pos) {
+        NormalisedDeal deal = store.get(pos);
+        int left = inventory.remaining(pos);
+        return left == deal.qtyLeft() ? deal : deal.withQtyLeft(left);
+    }
+}
@@ -0,0 +1,61 @@
+package com.demo.demo.repository.snapshot;
+
+import java.util.List;
+
+import com.demo.demo.entity.NormalisedDeal;
+
+/**
+ * Storage of the deals in a snapshot, addressed by feed position.
+ * Implementations differ in memory layout only; every layout returns equal deals for the
+ * same position.
+ */
+public interface DealStore {
+
+    /**
+     * Memory layout of a snapshot's deals.
+     */
+    enum Layout {
+        /** One {@link NormalisedDeal} record per deal, as loaded. */
+        LIST,
+        /** Primitive columns and a deduplicated restaurant table; rows are materialised on access. */
+        COLUMNAR
+    }
+
+    /**
+     * Stores the deals in the given layout.
+     * @param deals the normalised deals, in feed order
+     * @param layout the memory layout
+     * @return the store
+     */
+    static DealStore of(List<NormalisedDeal> deals, Layout layout) {
+        return layout == Layout.COLUMNAR ? ColumnarDealStore.of(deals) : new ListDealStore(deals);
+    }
+
+    /**
+     * @return number of deals
+     */
+    int size();
+
+    /**
+     * @param position feed position, 0..size()-1
+     * @return the deal at the position
+     */
+    NormalisedDeal get(int position);
+
+    /**
+     * @param position feed position
+     * @return minute the deal starts, falling back to the restaurant opening, or -1 if unknown
+     */
+    int startMinute(int position);
+
+    /**
+     * @param position feed position
+     * @return minute the deal ends, falling back to the restaurant closing, or -1 if unknown
+     */
+    int endMinute(int position);
+
+    /**
+     * @return all deals in feed order, as an unmodifiable list
+     */
+    List<NormalisedDeal> asList();
+}
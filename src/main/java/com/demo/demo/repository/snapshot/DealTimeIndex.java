@@ -0,0 +1,261 @@
+package com.demo.demo.repository.snapshot;
+
+import java.util.Arrays;
+
+/**
+ * Centered interval tree over deal windows at minute-of-day resolution.
+ * Windows are inclusive on both ends, matching the [start, end] semantics of
+ * {@code findAllActiveDeals}. The tree is split on the minute domain (0..1439),
+ * so it is at most 11 levels deep and "active at T" or "active at any point in [from, to]"
+ * costs O(log n + k).
+ * Entries are deal positions in the owning snapshot.
+ */
+public final class DealTimeIndex {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final int[] EMPTY = new int[0];
+
+    // Flattened tree nodes
+    private final int[] center;
+    private final int[] left;
+    private final int[] right;
+    private final int[] from;
+    private final int[] to;
+
+    // Per node slice [from, to): positions sorted by start ascending and by end descending
+    private final int[] byStartPos;
+    private final int[] byStartMinute;
+    private final int[] byEndPos;
+    private final int[] byEndMinute;
+
+    private final int size;
+
+    private DealTimeIndex(Builder builder) {
+        this.center = Arrays.copyOf(builder.center, builder.nodes);
+        this.left = Arrays.copyOf(builder.left, builder.nodes);
+        this.right = Arrays.copyOf(builder.right, builder.nodes);
+        this.from = Arrays.copyOf(builder.from, builder.nodes);
+        this.to = Arrays.copyOf(builder.to, builder.nodes);
+        this.byStartPos = builder.byStartPos;
+        this.byStartMinute = builder.byStartMinute;
+        this.byEndPos = builder.byEndPos;
+        this.byEndMinute = builder.byEndMinute;
+        this.size = builder.byStartPos.length;
+    }
+
+    /**
+     * Builds the index from parallel arrays of start/end minutes.
+     * Windows with a negative start or end (unknown) or with start after end are skipped.
+     * @param starts start minute-of-day per deal position
+     * @param ends end minute-of-day per deal position
+     * @return the index
+     */
+    public static DealTimeIndex build(int[] starts, int[] ends) {
+        int n = 0;
+        int[] valid = new int[starts.length];
+        for (int pos = 0; pos < starts.length; pos++) {
+            if (starts[pos] >= 0 && ends[pos] >= 0 && starts[pos] <= ends[pos]) {
+                valid[n++] = pos;
+            }
+        }
+        Builder builder = new Builder(starts, ends, n);
+        builder.build(Arrays.copyOf(valid, n), 0, MINUTES_PER_DAY - 1);
+        return new DealTimeIndex(builder);
+    }
+
+    /**
+     * @return number of indexed windows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds all deals whose window contains the given minute.
+     * @param minuteOfDay query minute, 0..1439
+     * @return matching deal positions in ascending (feed) order
+     */
+    public int[] activeAt(int minuteOfDay) {
+        if (center.length == 0) {
+            return EMPTY;
+        }
+        int[] hits = new int[16];
+        int count = 0;
+        int node = 0;
+        while (node >= 0) {
+            int c = center[node];
+            if (minuteOfDay < c) {
+                // Every window here ends at or after c, so only the start matters
+                for (int i = from[node]; i < to[node] && byStartMinute[i] <= minuteOfDay; i++) {
+                    hits = grow(hits, count);
+                    hits[count++] = byStartPos[i];
+                }
+                node = left[node];
+            } else if (minuteOfDay > c) {
+                // Every window here starts at or before c, so only the end matters
+                for (int i = from[node]; i < to[node] && byEndMinute[i] >= minuteOfDay; i++) {
+                    hits = grow(hits, count);
+                    hits[count++] = byEndPos[i];
+                }
+                node = right[node];
+            } else {
+                for (int i = from[node]; i < to[node]; i++) {
+                    hits = grow(hits, count);
+                    hits[count++] = byStartPos[i];
+                }
+                node = -1;
+            }
+        }
+        int[] result = Arrays.copyOf(hits, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Finds all deals whose window overlaps the range, i.e. that are active at any minute in it.
+     * @param rangeStart first minute of the range, 0..1439
+     * @param rangeEnd last minute of the range (inclusive), not before {@code rangeStart}
+     * @return matching deal positions in ascending (feed) order
+     */
+    public int[] activeBetween(int rangeStart, int rangeEnd) {
+        if (center.length == 0) {
+            return EMPTY;
+        }
+        int[] hits = new int[16];
+        int count = 0;
+        // Depth-first; each step pops one node and pushes at most two, so depth + 1 slots suffice
+        int[] pending = new int[32];
+        int top = 0;
+        pending[top++] = 0;
+        while (top > 0) {
+            int node = pending[--top];
+            if (node < 0) {
+                continue;
+            }
+            int c = center[node];
+            if (rangeEnd < c) {
+                // The range lies left of c: windows here reach c, so only their start matters
+                for (int i = from[node]; i < to[node] && byStartMinute[i] <= rangeEnd; i++) {
+                    hits = grow(hits, count);
+                    hits[count++] = byStartPos[i];
+                }
+                pending[top++] = left[node];
+            } else if (rangeStart > c) {
+                // The range lies right of c: windows here start by c, so only their end matters
+                for (int i = from[node]; i < to[node] && byEndMinute[i] >= rangeStart; i++) {
+                    hits = grow(hits, count);
+                    hits[count++] = byEndPos[i];
+                }
+                pending[top++] = right[node];
+            } else {
+                // The range contains c, so every window here overlaps it and both subtrees may too
+                for (int i = from[node]; i < to[node]; i++) {
+                    hits = grow(hits, count);
+                    hits[count++] = byStartPos[i];
+                }
+                pending[top++] = left[node];
+                pending[top++] = right[node];
+            }
+        }
+        int[] result = Arrays.copyOf(hits, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static int[] grow(int[] hits, int count) {
+        return count < hits.length ? hits : Arrays.copyOf(hits, hits.length * 2);
+    }
+
+    private static final class Builder {
+
+        private final int[] starts;
+        private final int[] ends;
+
+        // Every node has its own center minute, so a day has at most MINUTES_PER_DAY nodes
+        private final int[] center = new int[MINUTES_PER_DAY];
+        private final int[] left = new int[MINUTES_PER_DAY];
+        private final int[] right = new int[MINUTES_PER_DAY];
+        private final int[] from = new int[MINUTES_PER_DAY];
+        private final int[] to = new int[MINUTES_PER_DAY];
+        private int nodes;
+
+        private final int[] byStartPos;
+        private final int[] byStartMinute;
+        private final int[] byEndPos;
+        private final int[] byEndMinute;
+        private int filled;
+        // (minute << 32 | position) sort keys for one node, reused across nodes
+        private final long[] keys;
+
+        private Builder(int[] starts, int[] ends, int size) {
+            this.starts = starts;
+            this.ends = ends;
+            this.keys = new long[size];
+            this.byStartPos = new int[size];
+            this.byStartMinute = new int[size];
+            this.byEndPos = new int[size];
+            this.byEndMinute = new int[size];
+        }
+
+        private int build(int[] positions, int lo, int hi) {
+            if (positions.length == 0 || lo > hi) {
+                return -1;
+            }
+            int c = (lo + hi) >>> 1;
+
+            int here = 0, before = 0, after = 0;
+            for (int pos : positions) {
+                if (ends[pos] < c) {
+                    before++;
+                } else if (starts[pos] > c) {
+                    after++;
+                } else {
+                    here++;
+                }
+            }
+            int[] herePos = new int[here];
+            int[] beforePos = new int[before];
+            int[] afterPos = new int[after];
+            here = before = after = 0;
+            for (int pos : positions) {
+                if (ends[pos] < c) {
+                    beforePos[before++] = pos;
+                } else if (starts[pos] > c) {
+                    afterPos[after++] = pos;
+                } else {
+                    herePos[here++] = pos;
+                }
+            }
+
+            int node = nodes++;
+            center[node] = c;
+            from[node] = filled;
+            to[node] = filled + here;
+
+            // Minutes and positions are non-negative, so packed keys sort by minute, then position
+            for (int i = 0; i < here; i++) {
+                keys[i] = (long) starts[herePos[i]] << 32 | herePos[i];
+            }
+            Arrays.sort(keys, 0, here);
+            for (int i = 0; i < here; i++) {
+                byStartPos[filled + i] = (int) keys[i];
+                byStartMinute[filled + i] = (int) (keys[i] >>> 32);
+            }
+            // Ends descending: sort on the minutes left in the day
+            for (int i = 0; i < here; i++) {
+                keys[i] = (long) (MINUTES_PER_DAY - 1 - ends[herePos[i]]) << 32 | herePos[i];
+            }
+            Arrays.sort(keys, 0, here);
+            for (int i = 0; i < here; i++) {
+                byEndPos[filled + i] = (int) keys[i];
+                byEndMinute[filled + i] = MINUTES_PER_DAY - 1 - (int) (keys[i] >>> 32);
+            }
+            filled += here;
+
+            left[node] = build(beforePos, lo, c - 1);
+            right[node] = build(afterPos, c + 1, hi);
+            return node;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.demo.demo.repository.snapshot;
+
+import java.util.List;
+import java.util.Objects;
+
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.utils.TimeUtils;
+
+/**
+ * Keeps the loaded {@link NormalisedDeal} records as they are.
+ */
+final class ListDealStore implements DealStore {
+
+    private final List<NormalisedDeal> deals;
+
+    ListDealStore(List<NormalisedDeal> deals) {
+        this.deals = List.copyOf(deals);
+    }
+
+    @Override
+    public int size() {
+        return deals.size();
+    }
+
+    @Override
+    public NormalisedDeal get(int position) {
+        return deals.get(position);
+    }
+
+    @Override
+    public int startMinute(int position) {
+        NormalisedDeal deal = deals.get(position);
+        // If start is null, use the restaurant open time
+        return TimeUtils.toMinuteOfDay(Objects.nonNull(deal.start()) ? deal.start() : deal.restaurantOpen());
+    }
+
+    @Override
+    public int endMinute(int position) {
+        NormalisedDeal deal = deals.get(position);
+        return TimeUtils.toMinuteOfDay(Objects.nonNull(deal.end()) ? deal.end() : deal.restaurantClose());
+    }
+
+    @Override
+    public List<NormalisedDeal> asList() {
+        return deals;
+    }
+}
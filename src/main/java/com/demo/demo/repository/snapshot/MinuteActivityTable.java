@@ -0,0 +1,199 @@
+package com.demo.demo.repository.snapshot;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Precomputed answer to "which deals are active at minute M" for all 1440 minutes of the day.
+ * The active set only changes at a deal start or one minute after a deal end, so the day is
+ * split into segments between those boundaries (run-length encoding). Each segment stores its
+ * active deal positions once and every minute maps to its segment, which makes lookups a
+ * table read with no per-request comparisons.
+ * <p>
+ * The stored positions grow as segments &times; active deals. If that total would exceed the
+ * budget given at build time, no positions are stored and every lookup queries the interval
+ * index at the segment's first minute instead; segments and boundaries are kept either way.
+ */
+public final class MinuteActivityTable {
+
+    /** Default budget of stored positions, 32 MB of {@code int}s. */
+    public static final long DEFAULT_MAX_STORED_POSITIONS = 8_000_000;
+
+    private final short[] segmentOfMinute;
+    private final int[] segmentStart;
+    // Null when the budget was exceeded and lookups go to the index
+    private final int[][] segmentPositions;
+    private final DealTimeIndex index;
+
+    private MinuteActivityTable(short[] segmentOfMinute, int[] segmentStart, int[][] segmentPositions, DealTimeIndex index) {
+        this.segmentOfMinute = segmentOfMinute;
+        this.segmentStart = segmentStart;
+        this.segmentPositions = segmentPositions;
+        this.index = index;
+    }
+
+    /**
+     * Builds the table from the per-snapshot interval index with the default budget.
+     * @param starts start minute-of-day per deal position (-1 if unknown)
+     * @param ends end minute-of-day per deal position (-1 if unknown)
+     * @param index the interval index over the same windows
+     * @return the table
+     */
+    public static MinuteActivityTable build(int[] starts, int[] ends, DealTimeIndex index) {
+        return build(starts, ends, index, DEFAULT_MAX_STORED_POSITIONS);
+    }
+
+    /**
+     * Builds the table from the per-snapshot interval index.
+     * @param starts start minute-of-day per deal position (-1 if unknown)
+     * @param ends end minute-of-day per deal position (-1 if unknown)
+     * @param index the interval index over the same windows
+     * @param maxStoredPositions most positions to store across all segments; above it, lookups use the index
+     * @return the table
+     */
+    public static MinuteActivityTable build(int[] starts, int[] ends, DealTimeIndex index, long maxStoredPositions) {
+        boolean[] boundary = new boolean[DealTimeIndex.MINUTES_PER_DAY];
+        // Active count per minute from a difference array, to size the table before filling it
+        int[] diff = new int[DealTimeIndex.MINUTES_PER_DAY + 1];
+        boundary[0] = true;
+        for (int pos = 0; pos < starts.length; pos++) {
+            if (starts[pos] >= 0 && ends[pos] >= 0 && starts[pos] <= ends[pos]) {
+                boundary[starts[pos]] = true;
+                if (ends[pos] + 1 < DealTimeIndex.MINUTES_PER_DAY) {
+                    boundary[ends[pos] + 1] = true;
+                }
+                diff[starts[pos]]++;
+                diff[ends[pos] + 1]--;
+            }
+        }
+
+        int segments = 0;
+        long stored = 0;
+        int active = 0;
+        for (int minute = 0; minute < DealTimeIndex.MINUTES_PER_DAY; minute++) {
+            active += diff[minute];
+            if (boundary[minute]) {
+                segments++;
+                stored += active;
+            }
+        }
+        boolean store = stored <= maxStoredPositions;
+
+        short[] segmentOfMinute = new short[DealTimeIndex.MINUTES_PER_DAY];
+        int[] segmentStart = new int[segments];
+        int[][] segmentPositions = store ? new int[segments][] : null;
+        int segment = -1;
+        for (int minute = 0; minute < DealTimeIndex.MINUTES_PER_DAY; minute++) {
+            if (boundary[minute]) {
+                segment++;
+                segmentStart[segment] = minute;
+                if (store) {
+                    segmentPositions[segment] = index.activeAt(minute);
+                }
+            }
+            segmentOfMinute[minute] = (short) segment;
+        }
+        return new MinuteActivityTable(segmentOfMinute, segmentStart, segmentPositions, index);
+    }
+
+    /**
+     * Returns the positions of the deals active at the given minute.
+     * The returned array may be shared between callers and must not be modified.
+     * @param minuteOfDay query minute, 0..1439
+     * @return active deal positions in ascending (feed) order
+     */
+    public int[] activeAt(int minuteOfDay) {
+        int segment = segmentOfMinute[minuteOfDay];
+        return isStored() ? segmentPositions[segment] : index.activeAt(segmentStart[segment]);
+    }
+
+    /**
+     * @return true if the active positions are stored per segment, false if the budget was exceeded
+     */
+    public boolean isStored() {
+        return Objects.nonNull(segmentPositions);
+    }
+
+    /**
+     * @param minuteOfDay query minute, 0..1439
+     * @return the segment the minute belongs to; minutes in the same segment share the same active set
+     */
+    public int segmentAt(int minuteOfDay) {
+        return segmentOfMinute[minuteOfDay];
+    }
+
+    /**
+     * @param segment segment number
+     * @return the first minute of the segment
+     */
+    public int segmentStart(int segment) {
+        return segmentStart[segment];
+    }
+
+    /**
+     * Finds the next minute at which the active set changes, i.e. the next deal start or
+     * the minute after a deal end. The segment starts are the sorted boundary array.
+     * @param minuteOfDay query minute, 0..1439
+     * @return the first boundary after the minute, or -1 if nothing changes for the rest of the day
+     */
+    public int nextChangeAfter(int minuteOfDay) {
+        int next = segmentOfMinute[minuteOfDay] + 1;
+        return next < segmentStart.length ? segmentStart[next] : -1;
+    }
+
+    /**
+     * Finds the deals that become active at the given minute: active at it but not the minute before.
+     * For minute 0 the minute before is 23:59, as deal windows repeat daily.
+     * @param minuteOfDay query minute, 0..1439
+     * @return deal positions in ascending (feed) order; empty unless the minute is a boundary
+     */
+    public int[] activatedAt(int minuteOfDay) {
+        return difference(activeAt(minuteOfDay), activeAt(previousMinute(minuteOfDay)));
+    }
+
+    /**
+     * Finds the deals that expire at the given minute: active the minute before but not at it.
+     * @param minuteOfDay query minute, 0..1439
+     * @return deal positions in ascending (feed) order; empty unless the minute is a boundary
+     */
+    public int[] expiredAt(int minuteOfDay) {
+        return difference(activeAt(previousMinute(minuteOfDay)), activeAt(minuteOfDay));
+    }
+
+    /**
+     * @return number of segments the day is split into
+     */
+    public int segmentCount() {
+        return segmentStart.length;
+    }
+
+    /**
+     * @return total number of stored positions across all segments, a proxy for the table's heap cost
+     */
+    public long storedPositions() {
+        return isStored() ? Arrays.stream(segmentPositions).mapToLong(p -> p.length).sum() : 0;
+    }
+
+    private static int previousMinute(int minuteOfDay) {
+        return (minuteOfDay + DealTimeIndex.MINUTES_PER_DAY - 1) % DealTimeIndex.MINUTES_PER_DAY;
+    }
+
+    // Positions in a but not in b, both ascending, with one merge pass
+    private static int[] difference(int[] a, int[] b) {
+        if (a == b) {
+            return new int[0];
+        }
+        int[] result = new int[a.length];
+        int count = 0;
+        int j = 0;
+        for (int pos : a) {
+            while (j < b.length && b[j] < pos) {
+                j++;
+            }
+            if (j == b.length || b[j] != pos) {
+                result[count++] = pos;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,184 @@
+package com.demo.demo.repository.snapshot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Per-minute deal overlap curve and peak window for a set of deal windows.
+ * Built with the same sweep line as the original peak-window algorithm (start +1, end -1),
+ * but over a primitive difference array of 1440 minutes followed by a prefix sum.
+ * For peak purposes a deal counts as overlapping in [start, end).
+ * It also keeps prefix sums of starts and ends, which answer "how many deals are active at any
+ * point in [from, to]" (inclusive, like the deal queries) in O(1).
+ */
+public final class OverlapProfile {
+
+    private final int[] overlap;
+    // Minutes between the first and last event, the range windows are taken from
+    private final int first;
+    private final int last;
+    private final int peakStart;
+    private final int peakEnd;
+    private final int peakOverlap;
+
+    // startedBy[m]: windows with start <= m; endedBefore[m]: windows with end < m
+    private final int[] startedBy;
+    private final int[] endedBefore;
+
+    private OverlapProfile(int[] overlap, int first, int last, int peakStart, int peakEnd, int peakOverlap, int[] startedBy, int[] endedBefore) {
+        this.overlap = overlap;
+        this.first = first;
+        this.last = last;
+        this.peakStart = peakStart;
+        this.peakEnd = peakEnd;
+        this.peakOverlap = peakOverlap;
+        this.startedBy = startedBy;
+        this.endedBefore = endedBefore;
+    }
+
+    /**
+     * Builds the profile from parallel arrays of start/end minutes.
+     * Windows with an unknown (negative) start or end are skipped.
+     * @param starts start minute-of-day per deal position
+     * @param ends end minute-of-day per deal position
+     * @return the profile
+     */
+    public static OverlapProfile build(int[] starts, int[] ends) {
+        int[] diff = new int[DealTimeIndex.MINUTES_PER_DAY + 1];
+        int[] startedBy = new int[DealTimeIndex.MINUTES_PER_DAY];
+        int[] endedBefore = new int[DealTimeIndex.MINUTES_PER_DAY + 1];
+        int first = DealTimeIndex.MINUTES_PER_DAY;
+        int last = -1;
+        for (int pos = 0; pos < starts.length; pos++) {
+            if (starts[pos] < 0 || ends[pos] < 0) {
+                continue;
+            }
+            diff[starts[pos]]++;
+            diff[ends[pos]]--;
+            if (starts[pos] <= ends[pos]) {
+                startedBy[starts[pos]]++;
+                endedBefore[ends[pos] + 1]++;
+            }
+            first = Math.min(first, Math.min(starts[pos], ends[pos]));
+            last = Math.max(last, Math.max(starts[pos], ends[pos]));
+        }
+
+        int[] overlap = new int[DealTimeIndex.MINUTES_PER_DAY];
+        int running = 0;
+        for (int minute = 0; minute < DealTimeIndex.MINUTES_PER_DAY; minute++) {
+            running += diff[minute];
+            overlap[minute] = running;
+            if (minute > 0) {
+                startedBy[minute] += startedBy[minute - 1];
+                endedBefore[minute] += endedBefore[minute - 1];
+            }
+        }
+
+        // Only minutes between the first and last event form windows, as in the original sweep
+        int best = 0;
+        int peakStart = -1;
+        int peakEnd = -1;
+        for (int minute = first; minute < last; minute++) {
+            if (overlap[minute] > best) {
+                best = overlap[minute];
+                peakStart = minute;
+                peakEnd = minute + 1;
+            } else if (overlap[minute] == best && peakEnd == minute) {
+                // Extend the peak while the same overlap continues
+                peakEnd = minute + 1;
+            }
+        }
+        return new OverlapProfile(overlap, first, last, peakStart, peakEnd, best, startedBy, endedBefore);
+    }
+
+    /**
+     * @param minuteOfDay minute, 0..1439
+     * @return number of deals overlapping the minute
+     */
+    public int overlapAt(int minuteOfDay) {
+        return overlap[minuteOfDay];
+    }
+
+    /**
+     * Counts the deals active at any point in [from, to], inclusive of deal start and end.
+     * @param from first minute of the range
+     * @param to last minute of the range, not before {@code from}
+     * @return number of deals whose window intersects the range
+     */
+    public int activeBetween(int from, int to) {
+        // Every window ending before 'from' also started by 'to', so the difference is exact
+        return startedBy[to] - endedBefore[from];
+    }
+
+    /**
+     * Finds the K busiest windows that do not overlap each other, greedily: take the busiest
+     * plateau (a maximal run of minutes with the same positive overlap), exclude its span and
+     * repeat. Plateaus never merge once a neighbour is excluded, so this is the plateaus ranked by
+     * overlap, then by start. The first one is always the peak window, and fewer than K come back
+     * only when the curve has fewer plateaus. The shoulders either side of a peak are windows of
+     * their own.
+     * @param k maximum number of windows to return
+     * @return at most K windows, busiest first
+     */
+    public List<Window> topWindows(int k) {
+        List<Window> plateaus = new ArrayList<>();
+        int minute = first;
+        while (minute < last) {
+            int runStart = minute;
+            int value = overlap[minute];
+            while (minute < last && overlap[minute] == value) {
+                minute++;
+            }
+            if (value > 0) {
+                plateaus.add(new Window(runStart, minute, value));
+            }
+        }
+        plateaus.sort(Comparator.comparingInt(Window::overlap).reversed().thenComparingInt(Window::start));
+        return List.copyOf(plateaus.subList(0, Math.min(k, plateaus.size())));
+    }
+
+    /**
+     * @return a copy of the full per-minute overlap curve
+     */
+    public int[] curve() {
+        return overlap.clone();
+    }
+
+    /**
+     * @return true if at least one minute has a positive overlap
+     */
+    public boolean hasPeak() {
+        return peakStart >= 0;
+    }
+
+    /**
+     * @return first minute of the peak window, or -1 if there is none
+     */
+    public int peakStart() {
+        return peakStart;
+    }
+
+    /**
+     * @return minute the peak window ends (exclusive), or -1 if there is none
+     */
+    public int peakEnd() {
+        return peakEnd;
+    }
+
+    /**
+     * @return number of overlapping deals in the peak window
+     */
+    public int peakOverlap() {
+        return peakOverlap;
+    }
+
+    /**
+     * A window of constant overlap.
+     * @param start first minute of the window
+     * @param end minute the window ends (exclusive)
+     * @param overlap number of overlapping deals throughout the window
+     */
+    public record Window(int start, int end, int overlap) {
+    }
+}
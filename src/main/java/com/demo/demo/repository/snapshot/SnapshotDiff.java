@@ -0,0 +1,115 @@
+package com.demo.demo.repository.snapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.utils.TimeUtils;
+
+/**
+ * Deals added, modified and removed between two snapshot versions, keyed by {@code dealObjectId}.
+ * Deals are compared by a 64-bit content hash computed once per snapshot, so an unchanged deal
+ * costs one map lookup and one long comparison.
+ * @param fromVersion the version the diff applies to
+ * @param toVersion the version the diff produces
+ * @param added ids of deals that exist only in {@code toVersion}
+ * @param modified ids of deals whose content differs between the versions
+ * @param removed ids of deals that exist only in {@code fromVersion}
+ */
+public record SnapshotDiff(
+    long fromVersion,
+    long toVersion,
+    List<String> added,
+    List<String> modified,
+    List<String> removed
+) {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Compares two snapshots. Deals without an objectId are ignored, and a repeated objectId
+     * is represented by its first listing.
+     * @param previous the older snapshot
+     * @param next the newer snapshot
+     * @return the changes from {@code previous} to {@code next}
+     */
+    public static SnapshotDiff between(DealSnapshot previous, DealSnapshot next) {
+        List<String> added = new ArrayList<>();
+        List<String> modified = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (int pos = 0; pos < next.store().size(); pos++) {
+            String id = next.inventory().dealObjectId(pos);
+            if (Objects.isNull(id) || next.inventory().positionOf(id) != pos) {
+                continue;
+            }
+            int previousPos = previous.inventory().positionOf(id);
+            if (previousPos < 0) {
+                added.add(id);
+            } else if (previous.contentHash(previousPos) != next.contentHash(pos)) {
+                modified.add(id);
+            }
+        }
+        for (int pos = 0; pos < previous.store().size(); pos++) {
+            String id = previous.inventory().dealObjectId(pos);
+            if (Objects.nonNull(id) && previous.inventory().positionOf(id) == pos && next.inventory().positionOf(id) < 0) {
+                removed.add(id);
+            }
+        }
+        return new SnapshotDiff(previous.version(), next.version(), List.copyOf(added), List.copyOf(modified), List.copyOf(removed));
+    }
+
+    /**
+     * @return true if no deal changed
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && modified.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * Hashes the contents of every field of a deal, its restaurant included, into 64 bits.
+     * Strings are hashed char by char with their length, and times by their minute of the day,
+     * so the result does not inherit the collisions of the fields' 32-bit {@code hashCode}s.
+     * @param deal the deal
+     * @return the content hash
+     */
+    static long contentHash(NormalisedDeal deal) {
+        long h = FNV_OFFSET_BASIS;
+        h = mix(h, deal.restaurantObjectId());
+        h = mix(h, deal.restaurantName());
+        h = mix(h, deal.restaurantAddress1());
+        h = mix(h, deal.restaurantSuburb());
+        h = mix(h, TimeUtils.toMinuteOfDay(deal.restaurantOpen()));
+        h = mix(h, TimeUtils.toMinuteOfDay(deal.restaurantClose()));
+        h = mix(h, TimeUtils.toMinuteOfDay(deal.start()));
+        h = mix(h, TimeUtils.toMinuteOfDay(deal.end()));
+        h = mix(h, deal.dealObjectId());
+        h = mix(h, deal.discount());
+        h = mix(h, (deal.dineIn() ? 1 : 0) | (deal.lightning() ? 2 : 0));
+        h = mix(h, deal.qtyLeft());
+        // fmix64 finaliser from MurmurHash3
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    // FNV-1a over 16-bit units; the length prefix keeps null, "" and adjacent fields apart
+    private static long mix(long h, String field) {
+        if (Objects.isNull(field)) {
+            return mix(h, -1);
+        }
+        h = mix(h, field.length());
+        for (int i = 0; i < field.length(); i++) {
+            h = (h ^ field.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long mix(long h, int field) {
+        h = (h ^ (field & 0xffff)) * FNV_PRIME;
+        return (h ^ (field >>> 16)) * FNV_PRIME;
+    }
+}
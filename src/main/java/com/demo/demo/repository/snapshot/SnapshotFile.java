@@ -0,0 +1,265 @@
+package com.demo.demo.repository.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.entity.Restaurant;
+import com.demo.demo.utils.TimeUtils;
+
+/**
+ * Binary on-disk copy of a snapshot's deals, used to serve from local disk on a restart
+ * before the upstream feed has been fetched.
+ * <p>
+ * Layout (big-endian): magic {@code DEAL}, format version, snapshot version, a table of
+ * distinct strings, a table of distinct restaurants, then one fixed-size row per deal, and
+ * finally a CRC32 of everything before it. Strings and restaurants are written once and
+ * referenced by index (-1 for null); times are {@code short} minutes of the day (-1 for none),
+ * as in {@link ColumnarDealStore}. Each row keeps both the feed's {@code qtyLeft} and the live
+ * remaining quantity, so units claimed before a restart are not handed out again after it.
+ */
+public final class SnapshotFile {
+
+    static final int MAGIC = 0x4445414C;
+    static final short FORMAT_VERSION = 2;
+
+    private static final byte DINE_IN = 1;
+    private static final byte LIGHTNING = 2;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot's deals with their live remaining quantities.
+     * @param file destination file; its parent directory is created if missing
+     * @param snapshot the snapshot to write
+     * @throws IOException if the file cannot be written
+     * @see #write(Path, long, List, int[])
+     */
+    public static void write(Path file, DealSnapshot snapshot) throws IOException {
+        int[] remaining = new int[snapshot.store().size()];
+        for (int pos = 0; pos < remaining.length; pos++) {
+            remaining[pos] = snapshot.inventory().remaining(pos);
+        }
+        write(file, snapshot.version(), snapshot.store().asList(), remaining);
+    }
+
+    /**
+     * Writes deals that nothing has been claimed from yet.
+     * @param file destination file; its parent directory is created if missing
+     * @param version snapshot version to record
+     * @param deals the deals, in feed order
+     * @throws IOException if the file cannot be written
+     * @see #write(Path, long, List, int[])
+     */
+    public static void write(Path file, long version, List<NormalisedDeal> deals) throws IOException {
+        write(file, version, deals, deals.stream().mapToInt(deal -> Math.max(deal.qtyLeft(), 0)).toArray());
+    }
+
+    /**
+     * Writes the deals to a temporary file next to {@code file} and atomically moves it into place,
+     * so a reader never sees a partially written file.
+     * @param file destination file; its parent directory is created if missing
+     * @param version snapshot version to record
+     * @param deals the deals as the feed listed them, in feed order
+     * @param remaining live remaining quantity of each deal, by position
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, long version, List<NormalisedDeal> deals, int[] remaining) throws IOException {
+        Path dir = Objects.requireNonNullElse(file.toAbsolutePath().getParent(), Path.of("."));
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream raw = Files.newOutputStream(tmp);
+                    DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc))) {
+                writeBody(out, version, deals, remaining);
+                out.flush();
+                // The checksum covers the body only, so it is written past the CheckedOutputStream
+                new DataOutputStream(raw).writeInt((int) crc.getValue());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Memory-maps and decodes a snapshot file.
+     * @param file the file written by {@link #write}
+     * @param layout memory layout of the restored snapshot
+     * @return the snapshot, with the version recorded in the file
+     * @throws IOException if the file cannot be read, has another format version, or fails its checksum
+     */
+    public static DealSnapshot read(Path file, DealStore.Layout layout) throws IOException {
+        return read(file, layout, MinuteActivityTable.DEFAULT_MAX_STORED_POSITIONS);
+    }
+
+    /**
+     * Memory-maps and decodes a snapshot file.
+     * @param file the file written by {@link #write}
+     * @param layout memory layout of the restored snapshot
+     * @param activityTableBudget most positions the restored snapshot's activity table may store
+     * @return the snapshot, with the version and live quantities recorded in the file
+     * @throws IOException if the file cannot be read, has another format version, or fails its checksum
+     */
+    public static DealSnapshot read(Path file, DealStore.Layout layout, long activityTableBudget) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4 || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot file " + file + " has an invalid size of " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int bodyLength = (int) size - 4;
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, bodyLength));
+            if ((int) crc.getValue() != buffer.getInt(bodyLength)) {
+                throw new IOException("Snapshot file " + file + " failed its checksum");
+            }
+
+            ByteBuffer body = buffer.slice(0, bodyLength);
+            try {
+                return readBody(body, layout, activityTableBudget);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw new IOException("Snapshot file " + file + " is truncated or malformed", e);
+            }
+        }
+    }
+
+    private static void writeBody(DataOutputStream out, long version, List<NormalisedDeal> deals, int[] remaining) throws IOException {
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> stringTable = new ArrayList<>();
+        Map<Restaurant, Integer> restaurants = new HashMap<>();
+        List<Restaurant> restaurantTable = new ArrayList<>();
+        for (NormalisedDeal deal : deals) {
+            Restaurant restaurant = deal.restaurant();
+            if (Objects.isNull(restaurants.putIfAbsent(restaurant, restaurantTable.size()))) {
+                restaurantTable.add(restaurant);
+                intern(strings, stringTable, restaurant.objectId());
+                intern(strings, stringTable, restaurant.name());
+                intern(strings, stringTable, restaurant.address1());
+                intern(strings, stringTable, restaurant.suburb());
+            }
+            intern(strings, stringTable, deal.dealObjectId());
+            intern(strings, stringTable, deal.discount());
+        }
+
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        out.writeLong(version);
+
+        out.writeInt(stringTable.size());
+        for (String value : stringTable) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        out.writeInt(restaurantTable.size());
+        for (Restaurant restaurant : restaurantTable) {
+            out.writeInt(index(strings, restaurant.objectId()));
+            out.writeInt(index(strings, restaurant.name()));
+            out.writeInt(index(strings, restaurant.address1()));
+            out.writeInt(index(strings, restaurant.suburb()));
+            out.writeShort(TimeUtils.toMinuteOfDay(restaurant.open()));
+            out.writeShort(TimeUtils.toMinuteOfDay(restaurant.close()));
+        }
+
+        out.writeInt(deals.size());
+        for (int pos = 0; pos < deals.size(); pos++) {
+            NormalisedDeal deal = deals.get(pos);
+            out.writeInt(restaurants.get(deal.restaurant()));
+            out.writeShort(TimeUtils.toMinuteOfDay(deal.start()));
+            out.writeShort(TimeUtils.toMinuteOfDay(deal.end()));
+            out.writeInt(index(strings, deal.dealObjectId()));
+            out.writeInt(index(strings, deal.discount()));
+            out.writeByte((deal.dineIn() ? DINE_IN : 0) | (deal.lightning() ? LIGHTNING : 0));
+            out.writeInt(deal.qtyLeft());
+            out.writeInt(remaining[pos]);
+        }
+    }
+
+    private static DealSnapshot readBody(ByteBuffer in, DealStore.Layout layout, long activityTableBudget) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a deal snapshot file");
+        }
+        short format = in.getShort();
+        if (format != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version " + format);
+        }
+        long version = in.getLong();
+
+        String[] strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        Restaurant[] restaurants = new Restaurant[in.getInt()];
+        for (int i = 0; i < restaurants.length; i++) {
+            restaurants[i] = new Restaurant(string(strings, in.getInt()), string(strings, in.getInt()),
+                    string(strings, in.getInt()), string(strings, in.getInt()), time(in.getShort()), time(in.getShort()));
+        }
+
+        int count = in.getInt();
+        List<NormalisedDeal> deals = new ArrayList<>(count);
+        int[] remaining = new int[count];
+        for (int i = 0; i < count; i++) {
+            int restaurant = in.getInt();
+            LocalTime start = time(in.getShort());
+            LocalTime end = time(in.getShort());
+            String dealObjectId = string(strings, in.getInt());
+            String discount = string(strings, in.getInt());
+            byte flags = in.get();
+            int qtyLeft = in.getInt();
+            remaining[i] = in.getInt();
+            deals.add(new NormalisedDeal(restaurants[restaurant], start, end,
+                    dealObjectId, discount, (flags & DINE_IN) != 0, (flags & LIGHTNING) != 0, qtyLeft));
+        }
+        if (in.hasRemaining()) {
+            throw new IOException("Snapshot file has " + in.remaining() + " unexpected trailing bytes");
+        }
+        DealSnapshot snapshot = DealSnapshot.of(version, deals, layout, activityTableBudget);
+        snapshot.inventory().restore(remaining);
+        return snapshot;
+    }
+
+    private static void intern(Map<String, Integer> strings, List<String> table, String value) {
+        if (Objects.nonNull(value) && Objects.isNull(strings.putIfAbsent(value, table.size()))) {
+            table.add(value);
+        }
+    }
+
+    private static int index(Map<String, Integer> strings, String value) {
+        return Objects.nonNull(value) ? strings.get(value) : -1;
+    }
+
+    private static String string(String[] strings, int index) {
+        return index >= 0 ? strings[index] : null;
+    }
+
+    private static LocalTime time(short minute) {
+        return TimeUtils.fromMinuteOfDay(minute);
+    }
+}
@@ -1,11 +1,33 @@
 package com.demo.demo.service;
 
+import java.time.Duration;
 import java.util.List;
 
+import com.demo.demo.DTO.ClaimResponse;
+import com.demo.demo.DTO.DealBatchResponse;
+import com.demo.demo.DTO.DealChangesResponse;
+import com.demo.demo.DTO.DealHistogramResponse;
 import com.demo.demo.DTO.DealResponse;
+import com.demo.demo.DTO.NextChangeResponse;
 import com.demo.demo.DTO.PeakWindowResponse;
+import com.demo.demo.DTO.PeakWindowsResponse;
+import com.demo.demo.DTO.SerialisedDeals;
+import com.demo.demo.repository.DealFilter;
 
 public interface DealService {
     List<DealResponse> getDealsActiveAt(String timeOfDay);
+    SerialisedDeals getSerialisedDealsActiveAt(String timeOfDay);
+    SerialisedDeals getSerialisedDealsActiveAt(String timeOfDay, DealFilter filter);
+    DealBatchResponse getDealsActiveAtBatch(List<String> times, DealFilter filter);
+    SerialisedDeals getSerialisedRestaurantsActiveAt(String timeOfDay);
+    SerialisedDeals getSerialisedRestaurantsActiveAt(String timeOfDay, DealFilter filter);
+    SerialisedDeals getSerialisedDealsActiveBetween(String from, String to, DealFilter filter);
+    SerialisedDeals getSerialisedRestaurantsActiveBetween(String from, String to, DealFilter filter);
+    NextChangeResponse getNextChange(String after);
+    Duration getResponseLifetime(String timeOfDay);
     PeakWindowResponse getPeakDealWindow();
+    PeakWindowsResponse getPeakDealWindows(int k, DealFilter filter);
+    DealHistogramResponse getActiveDealHistogram(String bucket, String from, String to);
+    ClaimResponse claimDeal(String dealObjectId);
+    DealChangesResponse getChangesSince(long sinceVersion);
 }
@@ -0,0 +1,8 @@
+package com.demo.demo.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface DealStreamService {
+    SseEmitter subscribe(String lastEventId);
+    int subscriberCount();
+}
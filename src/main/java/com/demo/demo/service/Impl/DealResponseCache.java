@@ -0,0 +1,163 @@
+package com.demo.demo.service.Impl;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.demo.demo.DTO.SerialisedDeals;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.utils.ServerTiming;
+
+/**
+ * Cache of serialised deal lists for the current snapshot.
+ * Minutes that fall into the same activity segment share one entry, so a snapshot holds at
+ * most one entry per segment plus one for the unfiltered list. The whole cache is dropped
+ * when a snapshot with a different version is seen. Claims change quantities far more often than
+ * refreshes, so they only drop the cache once it is older than the allowed quantity staleness;
+ * until then, claims share one serialisation.
+ * The bodies held for one snapshot are bounded by a byte budget. Storing a body that would exceed
+ * it evicts the least recently used segments first, and a body larger than the whole budget is
+ * served without being cached.
+ */
+final class DealResponseCache {
+
+    private final AtomicReference<Entries> entries = new AtomicReference<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Returns the serialised deals for a minute of the current snapshot, serialising them on first use.
+     * @param snapshot the snapshot the response is built from
+     * @param minuteOfDay the query minute, or -1 for all deals
+     * @param quantityStaleness how long an entry may keep serving quantities that claims have since changed
+     * @param budgetBytes most bytes of JSON and gzip bodies held at once
+     * @param serialiser produces the JSON bytes on a cache miss
+     * @return the cached response
+     */
+    SerialisedDeals get(DealSnapshot snapshot, int minuteOfDay, Duration quantityStaleness, long budgetBytes, Supplier<byte[]> serialiser) {
+        long inventoryVersion = snapshot.inventory().version();
+        long now = System.nanoTime();
+        long staleness = quantityStaleness.toNanos();
+        Entries current = entries.get();
+        if (Objects.isNull(current) || !current.isFor(snapshot.version(), inventoryVersion, now, staleness)) {
+            Entries fresh = new Entries(snapshot.version(), inventoryVersion, now, snapshot.activityTable().segmentCount() + 1);
+            // Only move forward; a request still holding an older snapshot must not evict a newer cache
+            current = entries.updateAndGet(e -> Objects.isNull(e) || e.isBefore(fresh) ? fresh : e);
+            if (!current.isFor(snapshot.version(), inventoryVersion, now, staleness)) {
+                misses.increment();
+                return serialise(serialiser);
+            }
+        }
+
+        int slot = minuteOfDay < 0 ? current.slots.length() - 1 : snapshot.activityTable().segmentAt(minuteOfDay);
+        SerialisedDeals cached = current.slots.get(slot);
+        if (Objects.isNull(cached)) {
+            misses.increment();
+            ServerTiming.describe("cache", "miss");
+            // Concurrent misses may serialise twice; both results are identical
+            cached = SerialisedDeals.of(serialiser.get(), true);
+            current.lastUsed.setOpaque(slot, now);
+            if (size(cached) <= budgetBytes && current.slots.compareAndSet(slot, null, cached)) {
+                evictions.add(current.stored(slot, size(cached), budgetBytes));
+            }
+        } else {
+            hits.increment();
+            ServerTiming.describe("cache", "hit");
+            current.lastUsed.setOpaque(slot, now);
+        }
+        return cached;
+    }
+
+    private static long size(SerialisedDeals deals) {
+        return deals.json().length + (Objects.nonNull(deals.gzippedJson()) ? deals.gzippedJson().length : 0);
+    }
+
+    /**
+     * Serialises a response without caching it. The gzip variant is left to be compressed on
+     * demand, so clients that do not accept gzip never pay for it.
+     * @param serialiser produces the JSON bytes
+     * @return the response with its ETag
+     */
+    static SerialisedDeals serialise(Supplier<byte[]> serialiser) {
+        return SerialisedDeals.of(serialiser.get(), false);
+    }
+
+    /**
+     * @return lookups answered from the cache
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return lookups that had to serialise, including those for a snapshot the cache no longer holds
+     */
+    long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return cached bodies dropped to stay within the byte budget
+     */
+    long evictions() {
+        return evictions.sum();
+    }
+
+    private static final class Entries {
+
+        private final long version;
+        private final long inventoryVersion;
+        private final long createdAt;
+        private final AtomicReferenceArray<SerialisedDeals> slots;
+        // nanoTime of each slot's last lookup, for least-recently-used eviction
+        private final AtomicLongArray lastUsed;
+        // Guarded by this
+        private long bytes;
+
+        private Entries(long version, long inventoryVersion, long createdAt, int size) {
+            this.version = version;
+            this.inventoryVersion = inventoryVersion;
+            this.createdAt = createdAt;
+            this.slots = new AtomicReferenceArray<>(size);
+            this.lastUsed = new AtomicLongArray(size);
+        }
+
+        /**
+         * Accounts for a body just stored in a slot, evicting the least recently used other slots
+         * until the total fits the budget again. Only stores take the lock; lookups never do.
+         * @return number of slots evicted
+         */
+        private synchronized int stored(int slot, long size, long budgetBytes) {
+            bytes += size;
+            int evicted = 0;
+            while (bytes > budgetBytes) {
+                int victim = -1;
+                for (int i = 0; i < slots.length(); i++) {
+                    if (i != slot && Objects.nonNull(slots.get(i)) && (victim < 0 || lastUsed.getOpaque(i) - lastUsed.getOpaque(victim) < 0)) {
+                        victim = i;
+                    }
+                }
+                if (victim < 0) {
+                    break;
+                }
+                bytes -= size(slots.getAndSet(victim, null));
+                evicted++;
+            }
+            return evicted;
+        }
+
+        // Same snapshot, and either no claim since the entries were created or still within the staleness allowed
+        private boolean isFor(long version, long inventoryVersion, long now, long staleness) {
+            return this.version == version && (this.inventoryVersion == inventoryVersion || now - createdAt < staleness);
+        }
+
+        private boolean isBefore(Entries other) {
+            return version < other.version || (version == other.version && inventoryVersion < other.inventoryVersion);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.demo.demo.service.Impl;
+
+import com.demo.demo.DTO.DealChangesResponse;
+import com.demo.demo.DTO.DealResponse;
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.SnapshotDiff;
+import com.demo.demo.utils.TimeUtils;
+
+/**
+ * Mapping from snapshot deals to response DTOs, shared by the request and streaming services.
+ */
+final class DealResponses {
+
+    private DealResponses() {
+    }
+
+    static DealResponse of(NormalisedDeal deal) {
+        return new DealResponse(
+                deal.restaurantObjectId(),
+                deal.restaurantName(),
+                deal.restaurantAddress1(),
+                deal.restaurantSuburb(),
+                TimeUtils.formatTime(deal.restaurantOpen()),
+                TimeUtils.formatTime(deal.restaurantClose()),
+                deal.dealObjectId(),
+                deal.discount(),
+                deal.dineIn(),
+                deal.lightning(),
+                deal.qtyLeft()
+        );
+    }
+
+    /**
+     * @param diff changes from {@code diff.fromVersion()} up to the snapshot's version
+     * @param snapshot the snapshot the added and modified payloads are read from
+     * @return the changes with live payloads
+     */
+    static DealChangesResponse changes(SnapshotDiff diff, DealSnapshot snapshot) {
+        return new DealChangesResponse(diff.fromVersion(), snapshot.version(), false,
+                diff.added().stream().map(id -> of(snapshot.find(id))).toList(),
+                diff.modified().stream().map(id -> of(snapshot.find(id))).toList(),
+                diff.removed());
+    }
+}
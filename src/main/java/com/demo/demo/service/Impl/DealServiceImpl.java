@@ -1,123 +1,463 @@
 package com.demo.demo.service.Impl;
 
-import java.time.LocalTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import java.util.TreeMap;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.springframework.stereotype.Service;
 
+import com.demo.demo.DTO.ClaimResponse;
+import com.demo.demo.DTO.DealBatchResponse;
+import com.demo.demo.DTO.DealChangesResponse;
+import com.demo.demo.DTO.DealHistogramResponse;
 import com.demo.demo.DTO.DealResponse;
+import com.demo.demo.DTO.NextChangeResponse;
 import com.demo.demo.DTO.PeakWindowResponse;
+import com.demo.demo.DTO.PeakWindowsResponse;
+import com.demo.demo.DTO.RestaurantDealsResponse;
+import com.demo.demo.DTO.SerialisedDeals;
+import com.demo.demo.config.UrlProperties;
 import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.entity.Restaurant;
+import com.demo.demo.repository.DealFilter;
 import com.demo.demo.repository.DealsRepository;
+import com.demo.demo.repository.snapshot.DealInventory;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.DealTimeIndex;
+import com.demo.demo.repository.snapshot.MinuteActivityTable;
+import com.demo.demo.repository.snapshot.OverlapProfile;
+import com.demo.demo.repository.snapshot.SnapshotDiff;
 import com.demo.demo.service.DealService;
+import com.demo.demo.utils.PipelineMetrics;
 import com.demo.demo.utils.TimeUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 
 @Data
 @Service
 public class DealServiceImpl implements DealService{
 
+    /** Upper bound on the times in one batch request: one per minute of the day. */
+    static final int MAX_BATCH_TIMES = DealTimeIndex.MINUTES_PER_DAY;
+
     private final DealsRepository dealsRepository;
 
+    private final ObjectMapper objectMapper;
+
+    private final UrlProperties urlProperties;
+
+    @Getter(AccessLevel.NONE)
+    private final DealResponseCache responseCache = new DealResponseCache();
+
+    @Getter(AccessLevel.NONE)
+    private final DealResponseCache groupedResponseCache = new DealResponseCache();
+
     @Override
     public List<DealResponse> getDealsActiveAt(String timeOfDay) {
         
         return dealsRepository.findAllActiveDeals(timeOfDay).stream()
-                .map(deal -> new DealResponse(
-                        deal.restaurantObjectId(),
-                        deal.restaurantName(),
-                        deal.restaurantAddress1(),
-                        deal.restaurantSuburb(),
-                        TimeUtils.formatTime(deal.restaurantOpen()),
-                        TimeUtils.formatTime(deal.restaurantClose()),
-                        deal.dealObjectId(),
-                        deal.discount(),
-                        deal.dineIn(),
-                        deal.lightning(),
-                        deal.qtyLeft()
-                ))
+                .map(DealResponses::of)
                 .toList();
         
     }
 
+    /**
+     * Get the deals active at the given time as JSON bytes.
+     * Responses are cached per snapshot version and activity segment, so repeated polls
+     * skip mapping and serialisation until the snapshot changes or a deal starts/ends.
+     * @param timeOfDay the query time, or null for all deals
+     * @return the serialised deals with a strong ETag
+     */
+    @Override
+    public SerialisedDeals getSerialisedDealsActiveAt(String timeOfDay) {
+        return getSerialisedDealsActiveAt(timeOfDay, DealFilter.NONE);
+    }
+
+    /**
+     * Get the deals active at the given time that match the filter, as JSON bytes.
+     * Only unfiltered responses are cached; filter combinations are unbounded.
+     * @param timeOfDay the query time, or null for all deals
+     * @param filter attribute filter
+     * @return the serialised deals with a strong ETag
+     */
+    @Override
+    public SerialisedDeals getSerialisedDealsActiveAt(String timeOfDay, DealFilter filter) {
+        int minuteOfDay = TimeUtils.parseMinuteOfDay(timeOfDay);
+        DealSnapshot snapshot = dealsRepository.getSnapshot();
+        Supplier<byte[]> serialiser = () -> serialise(toResponses(select(() -> snapshot.activeAt(minuteOfDay, filter))));
+        return filter.isEmpty() ? responseCache.get(snapshot, minuteOfDay, urlProperties.getQuantityStaleness(), urlProperties.getResponseCacheBudget(), serialiser) : DealResponseCache.serialise(serialiser);
+    }
+
+    /**
+     * Get the deals active at each of the given times, all read from one snapshot.
+     * Times in the same activity segment share one lookup, and every matching deal is mapped
+     * once, however many results it appears in.
+     * @param times query times, at most one per minute of the day
+     * @param filter attribute filter applied to every time
+     * @return the results in request order, with each deal's payload sent once
+     */
+    @Override
+    public DealBatchResponse getDealsActiveAtBatch(List<String> times, DealFilter filter) {
+        if (Objects.isNull(times) || times.isEmpty()) {
+            throw new IllegalArgumentException("'times' must not be empty");
+        }
+        if (times.size() > MAX_BATCH_TIMES) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_TIMES + " times per batch");
+        }
+        int[] minutes = new int[times.size()];
+        for (int i = 0; i < minutes.length; i++) {
+            minutes[i] = TimeUtils.parseMinuteOfDay(times.get(i));
+            if (minutes[i] < 0) {
+                throw new IllegalArgumentException("Missing time at index " + i);
+            }
+        }
+
+        DealSnapshot snapshot = dealsRepository.getSnapshot();
+        MinuteActivityTable table = snapshot.activityTable();
+        Map<String, DealResponse> deals = new LinkedHashMap<>();
+        // Reference of each deal already mapped, by position
+        String[] keys = new String[snapshot.store().size()];
+        Map<Integer, List<String>> bySegment = new HashMap<>();
+        List<DealBatchResponse.Result> results = new ArrayList<>(times.size());
+        for (int i = 0; i < minutes.length; i++) {
+            int minute = minutes[i];
+            List<String> refs = bySegment.computeIfAbsent(table.segmentAt(minute), segment -> {
+                int[] positions = PipelineMetrics.Stage.FILTER.time(() -> snapshot.positionsActiveAt(minute, filter));
+                return PipelineMetrics.Stage.MAP.time(() -> references(snapshot, positions, keys, deals));
+            });
+            results.add(new DealBatchResponse.Result(times.get(i), TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(minute)), refs));
+        }
+        return new DealBatchResponse(snapshot.version(), deals, results);
+    }
+
+    // Maps each deal the first time any result contains it
+    private static List<String> references(DealSnapshot snapshot, int[] positions, String[] keys, Map<String, DealResponse> deals) {
+        List<String> refs = new ArrayList<>(positions.length);
+        for (int pos : positions) {
+            if (Objects.isNull(keys[pos])) {
+                NormalisedDeal deal = snapshot.row(pos);
+                String id = deal.dealObjectId();
+                // Only a deal's first listing can use its bare objectId as the key
+                keys[pos] = Objects.nonNull(id) && snapshot.inventory().positionOf(id) == pos
+                        ? id
+                        : Objects.requireNonNullElse(id, "") + "#" + pos;
+                deals.put(keys[pos], DealResponses.of(deal));
+            }
+            refs.add(keys[pos]);
+        }
+        return refs;
+    }
+
+    /**
+     * Get the deals active at the given time grouped by restaurant, as JSON bytes.
+     * Cached the same way as {@link #getSerialisedDealsActiveAt(String)}.
+     * @param timeOfDay the query time, or null for all deals
+     * @return the serialised restaurants with a strong ETag
+     */
+    @Override
+    public SerialisedDeals getSerialisedRestaurantsActiveAt(String timeOfDay) {
+        return getSerialisedRestaurantsActiveAt(timeOfDay, DealFilter.NONE);
+    }
+
+    @Override
+    public SerialisedDeals getSerialisedRestaurantsActiveAt(String timeOfDay, DealFilter filter) {
+        int minuteOfDay = TimeUtils.parseMinuteOfDay(timeOfDay);
+        DealSnapshot snapshot = dealsRepository.getSnapshot();
+        Supplier<byte[]> serialiser = () -> serialise(groupByRestaurant(select(() -> snapshot.activeAt(minuteOfDay, filter))));
+        return filter.isEmpty() ? groupedResponseCache.get(snapshot, minuteOfDay, urlProperties.getQuantityStaleness(), urlProperties.getResponseCacheBudget(), serialiser) : DealResponseCache.serialise(serialiser);
+    }
+
+    /**
+     * Get the deals active at any point in [from, to] that match the filter, as JSON bytes.
+     * Answered by an overlap query on the snapshot's interval index; not cached.
+     * @param from first time of the range, defaults to the start of the day
+     * @param to last time of the range (inclusive), defaults to the end of the day
+     * @param filter attribute filter
+     * @return the serialised deals with a strong ETag
+     */
+    @Override
+    public SerialisedDeals getSerialisedDealsActiveBetween(String from, String to, DealFilter filter) {
+        int[] range = TimeUtils.parseMinuteRange(from, to);
+        DealSnapshot snapshot = dealsRepository.getSnapshot();
+        return DealResponseCache.serialise(() ->
+                serialise(toResponses(select(() -> snapshot.activeBetween(range[0], range[1], filter)))));
+    }
+
+    @Override
+    public SerialisedDeals getSerialisedRestaurantsActiveBetween(String from, String to, DealFilter filter) {
+        int[] range = TimeUtils.parseMinuteRange(from, to);
+        DealSnapshot snapshot = dealsRepository.getSnapshot();
+        return DealResponseCache.serialise(() -> serialise(groupByRestaurant(select(() -> snapshot.activeBetween(range[0], range[1], filter)))));
+    }
+
+    private List<NormalisedDeal> select(Supplier<List<NormalisedDeal>> query) {
+        return PipelineMetrics.Stage.FILTER.time(query);
+    }
+
+    private List<DealResponse> toResponses(List<NormalisedDeal> deals) {
+        return PipelineMetrics.Stage.MAP.time(() -> deals.stream().map(DealResponses::of).toList());
+    }
+
+    private byte[] serialise(Object response) {
+        long started = System.nanoTime();
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialise deals", e);
+        } finally {
+            PipelineMetrics.Stage.SERIALISE.record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * @return serialised-response lookups answered from the flat and grouped caches
+     */
+    public long responseCacheHits() {
+        return responseCache.hits() + groupedResponseCache.hits();
+    }
+
+    /**
+     * @return serialised-response lookups that had to map and serialise, across both caches
+     */
+    public long responseCacheMisses() {
+        return responseCache.misses() + groupedResponseCache.misses();
+    }
+
+    /**
+     * @return cached responses evicted from the flat and grouped caches to stay within their byte budget
+     */
+    public long responseCacheEvictions() {
+        return responseCache.evictions() + groupedResponseCache.evictions();
+    }
+
+    // Restaurants in order of their first deal, deals in feed order
+    private List<RestaurantDealsResponse> groupByRestaurant(List<NormalisedDeal> deals) {
+        return PipelineMetrics.Stage.MAP.time(() -> group(deals));
+    }
+
+    private List<RestaurantDealsResponse> group(List<NormalisedDeal> deals) {
+        Map<Restaurant, List<RestaurantDealsResponse.Deal>> byRestaurant = new LinkedHashMap<>();
+        for (NormalisedDeal deal : deals) {
+            byRestaurant.computeIfAbsent(deal.restaurant(), r -> new ArrayList<>()).add(new RestaurantDealsResponse.Deal(
+                    deal.dealObjectId(),
+                    deal.discount(),
+                    deal.dineIn(),
+                    deal.lightning(),
+                    deal.qtyLeft()));
+        }
+        List<RestaurantDealsResponse> restaurants = new ArrayList<>(byRestaurant.size());
+        byRestaurant.forEach((restaurant, restaurantDeals) -> restaurants.add(new RestaurantDealsResponse(
+                restaurant.objectId(),
+                restaurant.name(),
+                restaurant.address1(),
+                restaurant.suburb(),
+                TimeUtils.formatTime(restaurant.open()),
+                TimeUtils.formatTime(restaurant.close()),
+                restaurantDeals)));
+        return restaurants;
+    }
+
+    /**
+     * Get the next time the set of active deals changes after the given time.
+     * @param after the reference time
+     * @return the next deal start or end boundary of the current snapshot
+     */
+    @Override
+    public NextChangeResponse getNextChange(String after) {
+        int minuteOfDay = TimeUtils.parseMinuteOfDay(after);
+        if (minuteOfDay < 0) {
+            throw new IllegalArgumentException("'after' is required");
+        }
+        int next = dealsRepository.getSnapshot().activityTable().nextChangeAfter(minuteOfDay);
+        return new NextChangeResponse(
+                TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(minuteOfDay)),
+                next < 0 ? null : TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(next)),
+                next < 0 ? null : next - minuteOfDay);
+    }
+
+    /**
+     * Get how long a deals response for the given time stays valid.
+     * A time-of-day result only changes at the next deal boundary (or midnight), and any
+     * result may change when the snapshot refreshes, so the lifetime is capped by the time left
+     * until the next refresh. Quantities are live, so claims can change them sooner; deployments
+     * that need those changes to reach clients quickly can cap the lifetime further with
+     * {@code data.live-quantity-max-age}.
+     * @param timeOfDay the query time, or null for a response that does not depend on one
+     * @return the lifetime to advertise in Cache-Control/Expires, in whole seconds
+     */
+    @Override
+    public Duration getResponseLifetime(String timeOfDay) {
+        int minuteOfDay = TimeUtils.parseMinuteOfDay(timeOfDay);
+        DealSnapshot snapshot = dealsRepository.getSnapshot();
+        Duration lifetime = untilRefresh(snapshot);
+        if (Objects.nonNull(urlProperties.getLiveQuantityMaxAge())) {
+            lifetime = min(lifetime, urlProperties.getLiveQuantityMaxAge());
+        }
+        if (minuteOfDay < 0) {
+            return lifetime;
+        }
+        int next = snapshot.activityTable().nextChangeAfter(minuteOfDay);
+        return min(Duration.ofMinutes((next < 0 ? DealTimeIndex.MINUTES_PER_DAY : next) - minuteOfDay), lifetime);
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) < 0 ? a : b;
+    }
+
+    // Time left until the next refresh, floored at zero; before the first scheduled refresh, counted from the load
+    private Duration untilRefresh(DealSnapshot snapshot) {
+        Instant next = dealsRepository.nextRefreshAt();
+        if (Objects.isNull(next)) {
+            next = snapshot.loadedAt().plus(urlProperties.getRefreshInterval());
+        }
+        long seconds = Duration.between(Instant.now(), next).getSeconds();
+        return Duration.ofSeconds(Math.max(seconds, 0));
+    }
+
+    /**
+     * Claim one unit of a deal.
+     * The live quantity is decremented with a CAS, so concurrent claims never take more units
+     * than the deal has left; responses show the new qtyLeft within the allowed quantity staleness.
+     * @param dealObjectId the deal's objectId
+     * @return whether a unit was claimed and how many are left
+     */
+    @Override
+    public ClaimResponse claimDeal(String dealObjectId) {
+        int left = dealsRepository.claim(dealObjectId);
+        return left == DealInventory.SOLD_OUT
+                ? new ClaimResponse(dealObjectId, false, 0)
+                : new ClaimResponse(dealObjectId, true, left);
+    }
+
+    /**
+     * Get the deals added, modified and removed since a snapshot version.
+     * Diffs are computed once per refresh from per-deal content hashes, so a poller that is
+     * up to date pays for a few ids rather than the full list. Payloads come from the current
+     * snapshot and carry live quantities; claims alone do not mark a deal as modified.
+     * @param sinceVersion the snapshot version the client last saw
+     * @return the changes up to the current version, or a resync marker if they are no longer known
+     */
+    @Override
+    public DealChangesResponse getChangesSince(long sinceVersion) {
+        DealSnapshot snapshot = dealsRepository.getSnapshot();
+        Optional<SnapshotDiff> changes = dealsRepository.changesSince(sinceVersion, snapshot.version());
+        if (changes.isEmpty()) {
+            return new DealChangesResponse(sinceVersion, snapshot.version(), true, List.of(), List.of(), List.of());
+        }
+        return DealResponses.changes(changes.get(), snapshot);
+    }
 
     /**
      * Get the peak deal window.
-     * The algorithm uses a sweep line approach to find the time window with the maximum number of active deals.
+     * The sweep line (start +1, end -1) runs once per snapshot over a 1440-minute difference array,
+     * so this only reads the precomputed result.
      * @return the peak deal window
      */
     @Override
     public PeakWindowResponse getPeakDealWindow() {
         
-        List<NormalisedDeal> deals = dealsRepository.findAllActiveDeals(null);
+        OverlapProfile profile = dealsRepository.getSnapshot().overlapProfile();
         
-        if (Objects.isNull(deals) || deals.isEmpty()) {
+        if (!profile.hasPeak()) {
             return new PeakWindowResponse(null, null);
         }
+
+        return new PeakWindowResponse(
+                TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(profile.peakStart())),
+                TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(profile.peakEnd())));
+    }
+
+    /**
+     * Get the K busiest non-overlapping windows among the deals matching the filter.
+     * Unfiltered requests read the precomputed profile; filtered ones sweep only the matching
+     * deals over a 1440-minute difference array.
+     * @param k maximum number of windows, at least 1
+     * @param filter attribute filter
+     * @return the windows, busiest first; the first equals {@link #getPeakDealWindow()} for an empty filter
+     */
+    @Override
+    public PeakWindowsResponse getPeakDealWindows(int k, DealFilter filter) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        OverlapProfile profile = dealsRepository.getSnapshot().overlapProfile(filter);
+        return new PeakWindowsResponse(profile.topWindows(k).stream()
+                .map(w -> new PeakWindowsResponse.Window(
+                        TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(w.start())),
+                        TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(w.end())),
+                        w.overlap()))
+                .toList());
+    }
+
+    /**
+     * Get the number of active deals per time bucket.
+     * Every count is a difference of two per-snapshot prefix sums, so the cost is O(buckets)
+     * regardless of the number of deals.
+     * @param bucket bucket size such as "15m", "1h" or "30" (minutes); defaults to 60 minutes
+     * @param from first time of the range, defaults to the start of the day
+     * @param to last time of the range (inclusive), defaults to the end of the day
+     * @return deals active at any point of each bucket, plus the total for the whole range
+     */
+    @Override
+    public DealHistogramResponse getActiveDealHistogram(String bucket, String from, String to) {
+        int bucketMinutes = parseBucketMinutes(bucket);
+        int[] range = TimeUtils.parseMinuteRange(from, to);
+        int fromMinute = range[0];
+        int toMinute = range[1];
         
-        TreeMap<LocalTime, Integer> timeCountMap = new TreeMap<>();
-        LocalTime dealStart, dealEnd;
-        // Build the time count map (sweep line/event)
-        // Each start time increments the count, each end time decrements the count
-        for (NormalisedDeal deal : deals) {
+        OverlapProfile profile = dealsRepository.getSnapshot().overlapProfile();
         
-            dealStart = deal.start();
-            dealEnd = deal.end();
-            // If start/end is null, use restaurant open/close times
-            if (dealStart == null) {
-                dealStart = deal.restaurantOpen();
-            }
-            if (dealEnd == null) {
-                dealEnd = deal.restaurantClose();
-            }
-            
-            timeCountMap.merge(dealStart, 1, Integer::sum);
-            timeCountMap.merge(dealEnd, -1, Integer::sum);
+        List<DealHistogramResponse.Bucket> buckets = new ArrayList<>((toMinute - fromMinute) / bucketMinutes + 1);
+        for (int start = fromMinute; start <= toMinute; start += bucketMinutes) {
+            int end = Math.min(start + bucketMinutes - 1, toMinute);
+            buckets.add(new DealHistogramResponse.Bucket(
+                    TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(start)),
+                    TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(end)),
+                    profile.activeBetween(start, end)));
         }
         
-        if (timeCountMap.isEmpty()) {
-            return new PeakWindowResponse(null, null);
+        return new DealHistogramResponse(
+                TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(fromMinute)),
+                TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(toMinute)),
+                bucketMinutes,
+                profile.activeBetween(fromMinute, toMinute),
+                buckets);
+    }
+    
+    private static int parseBucketMinutes(String bucket) {
+        if (Objects.isNull(bucket) || bucket.isBlank()) {
+            return 60;
         }
-        
-        // current number of overlapping deals
-        int overlapdeals = 0;
-        // best number of overlapping deals found
-        int best = -1;
-        LocalTime peakStart = null;
-        LocalTime peakEnd = null;
-        LocalTime prevTime = null;
-        
-        for (Map.Entry<LocalTime, Integer> e : timeCountMap.entrySet()) {
-            LocalTime currentTime = e.getKey();
-            
-            // Check if we have a previous time to form a window
-            // If so, check if the current number of overlapping deals is the best found so far in the [prevTime, currentTime) window]
-            if (Objects.nonNull(prevTime)) {
-                if (overlapdeals > best) {
-                    best = overlapdeals;
-                    peakStart = prevTime;
-                    peakEnd = currentTime;
-                } else if (overlapdeals == best && best > 0) {
-                    // Extend the peak end time if we have another window with the same number of overlapping deals
-                    if (Objects.equals(peakEnd, prevTime)) {
-                        peakEnd = currentTime;
-                    }
-                }
-            }
-            
-            overlapdeals += e.getValue();
-            prevTime = currentTime;
+        String raw = bucket.trim().toLowerCase(Locale.ROOT);
+        int unit = 1;
+        if (raw.endsWith("h")) {
+            unit = 60;
+            raw = raw.substring(0, raw.length() - 1);
+        } else if (raw.endsWith("m")) {
+            raw = raw.substring(0, raw.length() - 1);
         }
-        
-        if (best <= 0 || peakStart == null || peakEnd == null || !peakEnd.isAfter(peakStart)) {
-            return new PeakWindowResponse(null, null);
+        try {
+            // Exact, so a huge hour count cannot wrap around into the valid range
+            int minutes = Math.multiplyExact(Integer.parseInt(raw), unit);
+            if (minutes >= 1 && minutes <= DealTimeIndex.MINUTES_PER_DAY) {
+                return minutes;
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            // fall through
         }
-
-        return new PeakWindowResponse(TimeUtils.formatTime(peakStart), TimeUtils.formatTime(peakEnd));
+        throw new IllegalArgumentException("Unrecognized bucket size: " + bucket);
     }
 
 }
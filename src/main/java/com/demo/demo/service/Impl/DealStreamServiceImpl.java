@@ -0,0 +1,350 @@
+package com.demo.demo.service.Impl;
+
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.demo.demo.DTO.DealActivityResponse;
+import com.demo.demo.DTO.DealStreamStatusResponse;
+import com.demo.demo.config.UrlProperties;
+import com.demo.demo.repository.DealsRepository;
+import com.demo.demo.repository.SnapshotRefreshedEvent;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.DealTimeIndex;
+import com.demo.demo.repository.snapshot.MinuteActivityTable;
+import com.demo.demo.repository.snapshot.SnapshotDiff;
+import com.demo.demo.service.DealStreamService;
+import com.demo.demo.utils.TimeUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes deal activity and refresh changes to Server-Sent Events subscribers.
+ * <p>
+ * An idle subscriber holds no thread: just its emitter and a bounded queue. Each event is
+ * serialised once and the same bytes are queued for every subscriber, then drained on a
+ * virtual thread per busy subscriber, so a slow client only ever blocks its own drain.
+ * A subscriber whose queue overflows loses its backlog and gets a {@code resync} event instead.
+ * <p>
+ * Events: {@code hello} on connect, {@code activity} when deals start or end (driven by the
+ * snapshot's sorted boundary minutes), {@code changes} when a refresh changes the deals, and
+ * {@code resync} when a client must refetch the full list. Every event's id is
+ * {@code version:minute}: the snapshot version and the minute of the day the stream had reached
+ * (for {@code activity}, its boundary minute). A reconnecting client sends it back as
+ * {@code Last-Event-ID} and is caught up with the changes since that version from the change
+ * history, then the activity of every boundary it missed since that minute.
+ */
+@Slf4j
+@Data
+@Service
+public class DealStreamServiceImpl implements DealStreamService {
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    private final DealsRepository dealsRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final UrlProperties urlProperties;
+
+    @Getter(AccessLevel.NONE)
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Sends block while a client is slow, so each drain gets its own virtual thread
+    @Getter(AccessLevel.NONE)
+    private final ExecutorService drains = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Minute of the day the last tick reached, -1 before the first tick
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger lastMinute = new AtomicInteger(-1);
+
+    @Getter(AccessLevel.NONE)
+    private final LongAdder overflows = new LongAdder();
+
+    // Orders catch-up against live events: a new subscriber is registered between two publications
+    @Getter(AccessLevel.NONE)
+    private final Object publishLock = new Object();
+
+    /**
+     * Opens a stream for one client.
+     * @param lastEventId the {@code Last-Event-ID} a reconnecting client sends, or null
+     * @return the emitter, already holding a {@code hello}, {@code changes} or {@code resync} event
+     */
+    @Override
+    public SseEmitter subscribe(String lastEventId) {
+        UrlProperties.Stream settings = urlProperties.getStream();
+        if (subscribers.size() >= settings.getMaxSubscribers()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many deal stream subscribers");
+        }
+        // Resolved first, so a failed initial load does not leave a subscriber behind
+        DealSnapshot snapshot = dealsRepository.getSnapshot();
+        SseEmitter emitter = newEmitter(settings.getTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter, settings.getBufferSize());
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        synchronized (publishLock) {
+            // Catch-up covers everything up to the stream's current minute; later events arrive live
+            List<Set<DataWithMediaType>> first = catchUp(lastEventId, snapshot);
+            subscribers.add(subscriber);
+            first.forEach(subscriber::offer);
+        }
+        return emitter;
+    }
+
+    @Override
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * @return subscribers that fell more than a buffer behind and were told to resync
+     */
+    public long overflows() {
+        return overflows.sum();
+    }
+
+    /**
+     * Advances the stream to the current wall-clock minute in {@code data.stream.zone}.
+     */
+    @Scheduled(cron = "0 * * * * *")
+    public void tick() {
+        advanceTo(TimeUtils.toMinuteOfDay(LocalTime.now(urlProperties.getStream().getZone())));
+    }
+
+    /**
+     * Pushes an {@code activity} event for every deal boundary after the previous call, up to and
+     * including the given minute, wrapping past midnight. Only boundary minutes are visited, by
+     * walking the activity table's sorted segment starts. Without any boundary, subscribers get a
+     * heartbeat comment so dead connections are noticed.
+     * @param minuteOfDay the minute to advance to, 0..1439
+     */
+    public void advanceTo(int minuteOfDay) {
+        DealSnapshot snapshot = null;
+        if (!subscribers.isEmpty()) {
+            try {
+                snapshot = dealsRepository.getSnapshot();
+            } catch (RuntimeException e) {
+                log.warn("No deal snapshot to stream activity from", e);
+            }
+        }
+        synchronized (publishLock) {
+            int last = lastMinute.getAndSet(minuteOfDay);
+            if (Objects.isNull(snapshot)) {
+                return;
+            }
+            List<Set<DataWithMediaType>> activity = activityBetween(snapshot, last, minuteOfDay);
+            if (activity.isEmpty()) {
+                publish(HEARTBEAT);
+            }
+            activity.forEach(this::publish);
+        }
+    }
+
+    /**
+     * Pushes a {@code changes} event with the deals a refresh added, modified and removed.
+     * @param event the refresh
+     */
+    @EventListener
+    public void onRefresh(SnapshotRefreshedEvent event) {
+        if (!subscribers.isEmpty()) {
+            synchronized (publishLock) {
+                publish(event("changes", event.current().version(), streamMinute(), DealResponses.changes(event.diff(), event.current())));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.forEach(s -> s.emitter.complete());
+        drains.shutdownNow();
+    }
+
+    /**
+     * Creates the emitter for a new subscriber.
+     * @param timeoutMillis how long the stream stays open
+     * @return the emitter
+     */
+    protected SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    // The minute live activity events have been published up to; the wall clock before the first tick
+    private int streamMinute() {
+        int minute = lastMinute.get();
+        return minute >= 0 ? minute : TimeUtils.toMinuteOfDay(LocalTime.now(urlProperties.getStream().getZone()));
+    }
+
+    // Events that bring a client from the id it last saw up to the stream's current version and minute
+    private List<Set<DataWithMediaType>> catchUp(String lastEventId, DealSnapshot snapshot) {
+        if (Objects.isNull(lastEventId) || lastEventId.isBlank()) {
+            return List.of(status("hello", snapshot));
+        }
+        String[] id = lastEventId.trim().split(":");
+        long lastVersion;
+        int lastMinuteOfDay;
+        try {
+            if (id.length != 2) {
+                throw new NumberFormatException(lastEventId);
+            }
+            lastVersion = Long.parseLong(id[0]);
+            lastMinuteOfDay = Integer.parseInt(id[1]);
+        } catch (NumberFormatException e) {
+            // Without the minute there is no telling which activity was missed
+            return List.of(status("resync", snapshot));
+        }
+        if (lastMinuteOfDay < 0 || lastMinuteOfDay >= DealTimeIndex.MINUTES_PER_DAY) {
+            return List.of(status("resync", snapshot));
+        }
+        List<Set<DataWithMediaType>> events = new ArrayList<>();
+        if (lastVersion != snapshot.version()) {
+            Optional<SnapshotDiff> diff = dealsRepository.changesSince(lastVersion, snapshot.version());
+            if (diff.isEmpty()) {
+                return List.of(status("resync", snapshot));
+            }
+            events.add(event("changes", snapshot.version(), streamMinute(), DealResponses.changes(diff.get(), snapshot)));
+        }
+        events.addAll(activityBetween(snapshot, lastMinuteOfDay, streamMinute()));
+        return events.isEmpty() ? List.of(status("hello", snapshot)) : events;
+    }
+
+    // Activity events for every boundary in (last, minuteOfDay], wrapping past midnight; none if last is unknown
+    private List<Set<DataWithMediaType>> activityBetween(DealSnapshot snapshot, int last, int minuteOfDay) {
+        List<Set<DataWithMediaType>> events = new ArrayList<>();
+        if (last >= 0 && last != minuteOfDay) {
+            if (minuteOfDay < last) {
+                addBoundaries(events, snapshot, last, DealTimeIndex.MINUTES_PER_DAY - 1);
+                addActivity(events, snapshot, 0);
+                last = 0;
+            }
+            addBoundaries(events, snapshot, last, minuteOfDay);
+        }
+        return events;
+    }
+
+    private void addBoundaries(List<Set<DataWithMediaType>> events, DealSnapshot snapshot, int after, int upTo) {
+        MinuteActivityTable table = snapshot.activityTable();
+        for (int minute = table.nextChangeAfter(after); minute >= 0 && minute <= upTo; minute = table.nextChangeAfter(minute)) {
+            addActivity(events, snapshot, minute);
+        }
+    }
+
+    private void addActivity(List<Set<DataWithMediaType>> events, DealSnapshot snapshot, int minuteOfDay) {
+        int[] activated = snapshot.activityTable().activatedAt(minuteOfDay);
+        int[] expired = snapshot.activityTable().expiredAt(minuteOfDay);
+        if (activated.length == 0 && expired.length == 0) {
+            return;
+        }
+        events.add(event("activity", snapshot.version(), minuteOfDay, new DealActivityResponse(
+                snapshot.version(),
+                TimeUtils.formatTime(TimeUtils.fromMinuteOfDay(minuteOfDay)),
+                Arrays.stream(activated).mapToObj(pos -> DealResponses.of(snapshot.row(pos))).toList(),
+                Arrays.stream(expired).mapToObj(pos -> snapshot.inventory().dealObjectId(pos)).toList())));
+    }
+
+    private Set<DataWithMediaType> status(String name, DealSnapshot snapshot) {
+        return event(name, snapshot.version(), streamMinute(), new DealStreamStatusResponse(snapshot.version(),
+                TimeUtils.formatTime(LocalTime.now(urlProperties.getStream().getZone()))));
+    }
+
+    // Serialised once and shared by every subscriber
+    private Set<DataWithMediaType> event(String name, long version, int minuteOfDay, Object payload) {
+        try {
+            return SseEmitter.event()
+                    .name(name)
+                    .id(version + ":" + minuteOfDay)
+                    .data(objectMapper.writeValueAsString(payload))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialise " + name + " event", e);
+        }
+    }
+
+    private void publish(Set<DataWithMediaType> event) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean needsResync = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(Math.max(bufferSize, 2));
+        }
+
+        private void offer(Set<DataWithMediaType> event) {
+            // Once behind, further events are superseded by the resync; only the drain touches the backlog
+            if (!needsResync.get() && !queue.offer(event) && needsResync.compareAndSet(false, true)) {
+                overflows.increment();
+            }
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    drains.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                Set<DataWithMediaType> event;
+                while ((event = next()) != null) {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        // The client went away; draining stays set so no further drain is started
+                        subscribers.remove(this);
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while ((needsResync.get() || !queue.isEmpty()) && draining.compareAndSet(false, true));
+        }
+
+        private Set<DataWithMediaType> next() {
+            if (needsResync.getAndSet(false)) {
+                // Too far behind to catch up event by event: drop the backlog and ask for a full fetch.
+                // The resync is built after the clear, so it covers every event dropped with it.
+                queue.clear();
+                return status("resync", dealsRepository.getSnapshot());
+            }
+            return queue.poll();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.demo.demo.utils;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters of the deal pipeline, from upstream fetch to the bytes written to a client.
+ * They are registered on Micrometer's global registry, which Spring Boot backs with its own
+ * registries (and so Actuator and Prometheus); outside the application they record nothing.
+ */
+public final class PipelineMetrics {
+
+    private static final Counter PARSE_FAILURES = Counter.builder("deals.load.parse.failures")
+            .description("Upstream feeds that could not be parsed or normalised")
+            .register(Metrics.globalRegistry);
+    private static final DistributionSummary IDENTITY_BYTES = payloadSummary("identity");
+    private static final DistributionSummary GZIP_BYTES = payloadSummary("gzip");
+
+    private PipelineMetrics() {
+    }
+
+    /**
+     * A timed stage, recorded both as {@code deals.stage{stage=...}} and in the request's {@link ServerTiming}.
+     */
+    public enum Stage {
+        /** Upstream request until the response headers arrive. */
+        FETCH,
+        /** Streaming the feed body through the JSON parser, normalisation included. */
+        PARSE,
+        /**
+         * Clamping and building deals, summed over every normalisation thread. This is thread time, not
+         * wall time: with a parse parallelism above 1 it can exceed the {@link #PARSE} it is part of.
+         */
+        NORMALISE_CPU,
+        /** Building a snapshot and its indexes. */
+        BUILD,
+        /** Writing the snapshot file. */
+        PERSIST,
+        /** Selecting the deals that match a query from a snapshot. */
+        FILTER,
+        /** Mapping deals to response objects. */
+        MAP,
+        /** Serialising a response to JSON. */
+        SERIALISE,
+        /** Gzipping a serialised response. */
+        COMPRESS;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+        private final Timer timer = Timer.builder("deals.stage")
+                .description("Time spent in each stage of the deal pipeline")
+                .tag("stage", tag)
+                .register(Metrics.globalRegistry);
+
+        /**
+         * @param nanos time spent in the stage
+         */
+        public void record(long nanos) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            ServerTiming.record(tag, nanos);
+        }
+
+        /**
+         * Runs the task and records its duration, whether or not it completes normally.
+         * @param task the work of this stage
+         * @return the task's result
+         */
+        public <T> T time(Supplier<T> task) {
+            long started = System.nanoTime();
+            try {
+                return task.get();
+            } finally {
+                record(System.nanoTime() - started);
+            }
+        }
+    }
+
+    /**
+     * Counts a feed that failed to parse or normalise.
+     */
+    public static void parseFailed() {
+        PARSE_FAILURES.increment();
+    }
+
+    /**
+     * Records the size of a deals response body sent to a client.
+     * @param bytes body size
+     * @param gzip whether the body is the gzip representation
+     */
+    public static void payload(int bytes, boolean gzip) {
+        (gzip ? GZIP_BYTES : IDENTITY_BYTES).record(bytes);
+    }
+
+    private static DistributionSummary payloadSummary(String encoding) {
+        return DistributionSummary.builder("deals.response.bytes")
+                .description("Size of deals response bodies")
+                .baseUnit("bytes")
+                .tag("encoding", encoding)
+                .register(Metrics.globalRegistry);
+    }
+}
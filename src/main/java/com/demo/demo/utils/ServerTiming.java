@@ -0,0 +1,83 @@
+package com.demo.demo.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Per-request collector of stage durations for the {@code Server-Timing} response header.
+ * A request thread starts collecting with {@link #start()}; stages recorded on that thread while
+ * it is active are summed by name, and anything recorded elsewhere is ignored.
+ */
+public final class ServerTiming {
+
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startedAt = System.nanoTime();
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    private final Map<String, String> descriptions = new LinkedHashMap<>();
+
+    private ServerTiming() {
+    }
+
+    /**
+     * Starts collecting on the current thread.
+     * @return the collector
+     */
+    public static ServerTiming start() {
+        ServerTiming timing = new ServerTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * Stops collecting on the current thread.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Adds a duration to a metric of the current request, if one is being collected.
+     * @param metric the metric name
+     * @param nanos the duration in nanoseconds
+     */
+    public static void record(String metric, long nanos) {
+        ServerTiming timing = CURRENT.get();
+        if (Objects.nonNull(timing)) {
+            timing.durations.merge(metric, nanos, Long::sum);
+        }
+    }
+
+    /**
+     * Attaches a description to a metric of the current request, if one is being collected.
+     * @param metric the metric name
+     * @param description the description, e.g. "hit"
+     */
+    public static void describe(String metric, String description) {
+        ServerTiming timing = CURRENT.get();
+        if (Objects.nonNull(timing)) {
+            timing.descriptions.put(metric, description);
+        }
+    }
+
+    /**
+     * Formats the collected metrics, followed by the total time since {@link #start()}.
+     * @return the header value, e.g. {@code filter;dur=0.41, cache;desc="hit", total;dur=1.20}
+     */
+    public String header() {
+        StringBuilder header = new StringBuilder();
+        durations.forEach((metric, nanos) -> append(header, metric).append(";dur=").append(millis(nanos)));
+        descriptions.forEach((metric, description) -> append(header, metric).append(";desc=\"").append(description).append('"'));
+        return append(header, "total").append(";dur=").append(millis(System.nanoTime() - startedAt)).toString();
+    }
+
+    private static StringBuilder append(StringBuilder header, String metric) {
+        return (header.isEmpty() ? header : header.append(", ")).append(metric);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.demo.demo.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs at most one task at a time and lets concurrent callers share its outcome.
+ * A caller arriving while a task is in flight waits for that task and receives the same
+ * result or exception instead of starting its own.
+ * @param <T> the result type
+ */
+public class SingleFlight<T> {
+
+    private final AtomicReference<CompletableFuture<T>> inFlight = new AtomicReference<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Runs the task, or joins the one already in flight.
+     * @param task the task to run if none is in flight
+     * @return the result of the task that ran
+     * @throws Exception the exception thrown by the task that ran
+     */
+    public T execute(Callable<T> task) throws Exception {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.compareAndExchange(null, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return join(existing);
+        }
+
+        executions.increment();
+        try {
+            T result = task.call();
+            mine.complete(result);
+            return result;
+        } catch (Throwable e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.compareAndSet(mine, null);
+        }
+    }
+
+    private T join(CompletableFuture<T> existing) throws Exception {
+        try {
+            return existing.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of tasks that actually ran
+     */
+    public long executions() {
+        return executions.sum();
+    }
+
+    /**
+     * @return number of callers that joined a task already in flight
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+}
@@ -2,22 +2,17 @@ package com.demo.demo.utils;
 
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.List;
-import java.util.Locale;
 import java.util.Objects;
 
 public class TimeUtils {
 
-    private static final List<DateTimeFormatter> TIME_FORMATTERS = List.of(
-        DateTimeFormatter.ofPattern("h:mma").withLocale(Locale.ROOT),
-        DateTimeFormatter.ofPattern("hh:mma").withLocale(Locale.ROOT),
-        DateTimeFormatter.ofPattern("H:mm").withLocale(Locale.ROOT),
-        DateTimeFormatter.ofPattern("HH:mm").withLocale(Locale.ROOT)
-    );
-
     private static final DateTimeFormatter TIME_FORMATTER_AM_PM = DateTimeFormatter.ofPattern("hh:mm a");
 
+    private static final int LAST_MINUTE_OF_DAY = 24 * 60 - 1;
+
+    // Hour fields accept up to 19 digits (leading zeros), like the DateTimeFormatter patterns they replace
+    private static final int MAX_HOUR_DIGITS = 19;
+
     /**
      * Parses a time string into a LocalTime object.
      * Accepts formats like "2PM", "02:00PM", "14:00", etc.
@@ -27,27 +22,142 @@ public class TimeUtils {
      * @throws IllegalArgumentException if the time format is unrecognized
      */
     public static LocalTime parseTime(String time) {
+        return fromMinuteOfDay(parseMinuteOfDay(time));
+    }
+
+    /**
+     * Parses a time string into its minute of the day (0..1439) in a single pass.
+     * Accepts the same formats as {@link #parseTime(String)}: "h[:mm]AM/PM" (case-insensitive,
+     * hour 0-12) and "H:mm" (hour 0-23, "24:00" meaning midnight).
+     * Returns -1 if the input is null or blank.
+     * @param time the time string to parse
+     * @return the minute of the day or -1
+     * @throws IllegalArgumentException if the time format is unrecognized
+     */
+    public static int parseMinuteOfDay(String time) {
         if (Objects.isNull(time) || time.isBlank()) {
-            return null;
+            return -1;
+        }
+        int minuteOfDay = parseTrimmed(time);
+        if (minuteOfDay < 0) {
+            throw new IllegalArgumentException("Unrecognized time format: " + time);
+        }
+        return minuteOfDay;
+    }
+
+    /**
+     * @return the minute of the day, or -1 if the input does not match a supported format
+     */
+    private static int parseTrimmed(String time) {
+        // Same bounds as String.trim()
+        int i = 0;
+        int end = time.length();
+        while (i < end && time.charAt(i) <= ' ') {
+            i++;
+        }
+        while (end > i && time.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        int digits = 0;
+        long hour = 0;
+        while (i < end && isDigit(time.charAt(i))) {
+            // Values past two digits only need to stay out of range, not exact
+            hour = Math.min(hour * 10 + (time.charAt(i) - '0'), 100);
+            digits++;
+            i++;
+        }
+        if (digits == 0 || digits > MAX_HOUR_DIGITS || i == end) {
+            return -1;
         }
-        String rawTime = time.trim().toUpperCase(Locale.ROOT);
-        
-        if (rawTime.matches("^\\d{1,2}[AP]M$")) {
-            rawTime = rawTime.replace("AM", ":00AM").replace("PM", ":00PM");
-        }
-        
-        for (DateTimeFormatter dateTimeFormatter : TIME_FORMATTERS) {
-            try {
-                return LocalTime.parse(rawTime, dateTimeFormatter);
-            } catch (DateTimeParseException e) {
-                // ignored
+
+        // "2PM" short form only allows one or two hour digits
+        if (time.charAt(i) != ':') {
+            return digits <= 2 && end - i == 2 ? resolveAmPm(hour, 0, time.charAt(i), time.charAt(i + 1)) : -1;
+        }
+
+        i++;
+        if (end - i < 2 || !isDigit(time.charAt(i)) || !isDigit(time.charAt(i + 1))) {
+            return -1;
+        }
+        int minute = (time.charAt(i) - '0') * 10 + (time.charAt(i + 1) - '0');
+        if (minute > 59) {
+            return -1;
+        }
+        i += 2;
+
+        if (i == end) {
+            if (hour == 24 && minute == 0) {
+                return 0;
             }
+            return hour < 24 ? (int) hour * 60 + minute : -1;
         }
-        
-        throw new IllegalArgumentException("Unrecognized time format: " + time);
-        
+        return end - i == 2 ? resolveAmPm(hour, minute, time.charAt(i), time.charAt(i + 1)) : -1;
     }
-    
+
+    private static int resolveAmPm(long clockHour, int minute, char marker, char m) {
+        if (clockHour > 12 || (m != 'M' && m != 'm')) {
+            return -1;
+        }
+        int hour = clockHour == 12 ? 0 : (int) clockHour;
+        if (marker == 'P' || marker == 'p') {
+            hour += 12;
+        } else if (marker != 'A' && marker != 'a') {
+            return -1;
+        }
+        return hour * 60 + minute;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Parses an inclusive [from, to] range of times into minutes of the day.
+     * A missing or blank bound defaults to the start (00:00) or end (23:59) of the day.
+     * @param from first time of the range
+     * @param to last time of the range
+     * @return the range as {from, to} minutes
+     * @throws IllegalArgumentException if a bound is unrecognized or from is after to
+     */
+    public static int[] parseMinuteRange(String from, String to) {
+        int fromMinute = Math.max(parseMinuteOfDay(from), 0);
+        int toMinute = parseMinuteOfDay(to);
+        if (toMinute < 0) {
+            toMinute = LAST_MINUTE_OF_DAY;
+        }
+        if (fromMinute > toMinute) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        return new int[] {fromMinute, toMinute};
+    }
+
+    /**
+     * Converts a LocalTime into its minute of the day (0..1439).
+     * Returns -1 if the input is null.
+     * @param time the LocalTime object to convert
+     * @return the minute of the day or -1
+     */
+    public static int toMinuteOfDay(LocalTime time) {
+        if (Objects.isNull(time)) {
+            return -1;
+        }
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Converts a minute of the day (0..1439) into a LocalTime.
+     * Returns null if the minute is negative.
+     * @param minuteOfDay the minute of the day
+     * @return the LocalTime object or null
+     */
+    public static LocalTime fromMinuteOfDay(int minuteOfDay) {
+        if (minuteOfDay < 0) {
+            return null;
+        }
+        return LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+    }
+
     /**
      * Formats a LocalTime object into a string in "hh:mm AM/PM" format.
      * @param time the LocalTime object to format
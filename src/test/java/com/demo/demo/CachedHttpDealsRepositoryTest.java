@@ -1,23 +1,52 @@
 package com.demo.demo;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.client.RestClient;
 
+import com.demo.demo.config.UrlProperties;
 import com.demo.demo.entity.NormalisedDeal;
 import com.demo.demo.http.DealLoader;
 import com.demo.demo.repository.Impl.CachedHttpDealsRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
+import com.demo.demo.repository.SnapshotRefreshedEvent;
+import com.demo.demo.repository.snapshot.DealStore;
+import com.demo.demo.repository.snapshot.SnapshotDiff;
+import com.demo.demo.repository.snapshot.SnapshotFile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
 
 @ExtendWith(MockitoExtension.class)
 public class CachedHttpDealsRepositoryTest {
@@ -29,7 +58,7 @@ public class CachedHttpDealsRepositoryTest {
     
     @BeforeEach
     void setUp() {
-        repository = new CachedHttpDealsRepository(dealLoader);
+        repository = new CachedHttpDealsRepository(dealLoader, new UrlProperties());
     }
     
     
@@ -39,7 +68,7 @@ public class CachedHttpDealsRepositoryTest {
     // D3: (no start/end) - falls back to restaurant hours
     
     @Test
-    void testFindAllActiveDeals() throws JsonMappingException, JsonProcessingException {
+    void testFindAllActiveDeals() throws IOException {
         LocalTime rOpen = LocalTime.of(15, 0);
         LocalTime rClose = LocalTime.of(21, 0);
         
@@ -69,7 +98,7 @@ public class CachedHttpDealsRepositoryTest {
     
     // D3: (no start/end)
     @Test
-    void testFindAllActiveDeals_dealWithoutTimesFallsBackToRestaurantWindow() throws JsonMappingException, JsonProcessingException {
+    void testFindAllActiveDeals_dealWithoutTimesFallsBackToRestaurantWindow() throws IOException {
         LocalTime rOpen = LocalTime.of(15, 0);
         LocalTime rClose = LocalTime.of(21, 0);
         
@@ -91,7 +120,143 @@ public class CachedHttpDealsRepositoryTest {
     }
     
     @Test
-    void testInvalidTimeFormat() throws JsonMappingException, JsonProcessingException {
+    void testSnapshotIsCachedBetweenRequests() throws IOException {
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+
+        when(dealLoader.loadAll()).thenReturn(List.of(d1));
+
+        repository.findAllActiveDeals("16:00");
+        repository.findAllActiveDeals("17:00");
+        repository.findAllActiveDeals(null);
+
+        verify(dealLoader, times(1)).loadAll();
+    }
+
+    @Test
+    void testRefreshSwapsSnapshot_AndKeepsServingStaleOnFailure() throws IOException {
+        LocalTime rOpen = LocalTime.of(15, 0);
+        LocalTime rClose = LocalTime.of(21, 0);
+
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                rOpen, rClose);
+
+        NormalisedDeal d2 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(16, 0), LocalTime.of(20, 0),
+                "d2", "20", true, false, 3,
+                rOpen, rClose);
+
+        when(dealLoader.loadAll()).thenReturn(List.of(d1));
+        when(dealLoader.loadIfChanged())
+                .thenReturn(Optional.of(List.of(d1, d2)))
+                .thenThrow(new IllegalStateException("upstream down"));
+
+        repository.refresh();
+        assertEquals(1, repository.findAllActiveDeals("16:00").size(), "First snapshot has d1 only");
+
+        repository.refresh();
+        assertEquals(2, repository.findAllActiveDeals("16:00").size(), "Refresh should swap in d1 and d2");
+
+        repository.refresh();
+        assertEquals(2, repository.findAllActiveDeals("16:00").size(), "Failed refresh should keep serving the previous snapshot");
+    }
+
+    @Test
+    void testRefreshRecordsChanges() throws IOException {
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        NormalisedDeal d2 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(16, 0), LocalTime.of(20, 0),
+                "d2", "20", true, false, 3,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+
+        when(dealLoader.loadAll()).thenReturn(List.of(d1));
+        when(dealLoader.loadIfChanged()).thenReturn(Optional.of(List.of(d1, d2)));
+
+        List<Object> events = new ArrayList<>();
+        repository.setApplicationEventPublisher(events::add);
+
+        repository.refresh();
+        repository.refresh();
+
+        assertEquals(2, repository.getSnapshot().version());
+        assertEquals(1, events.size(), "Only a refresh that changes deals is published");
+        assertEquals(List.of("d2"), ((SnapshotRefreshedEvent) events.get(0)).diff().added());
+        assertEquals(Optional.of(new SnapshotDiff(1, 2, List.of("d2"), List.of(), List.of())), repository.changesSince(1, 2));
+        assertTrue(repository.changesSince(0, 2).isEmpty(), "Nothing is known before the first snapshot");
+    }
+
+    @Test
+    void testRefreshKeepsSnapshotWhenFeedUnchanged() throws IOException {
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+
+        when(dealLoader.loadAll()).thenReturn(List.of(d1));
+        when(dealLoader.loadIfChanged()).thenReturn(Optional.empty());
+
+        assertNull(repository.nextRefreshAt(), "No scheduled refresh has run yet");
+        repository.refresh();
+        List<NormalisedDeal> before = repository.findAllActiveDeals(null);
+        Instant refreshed = Instant.now();
+        repository.refresh();
+
+        assertSame(before, repository.findAllActiveDeals(null), "Unchanged feed should keep the same snapshot");
+        assertFalse(repository.nextRefreshAt().isBefore(refreshed.plus(Duration.ofMinutes(5))),
+                "An unchanged refresh still moves the next one back, although the snapshot is older");
+        verify(dealLoader, times(1)).loadAll();
+        verify(dealLoader, times(1)).loadIfChanged();
+    }
+
+    @Test
+    void testConcurrentColdStart_MakesOneUpstreamRequest() throws Exception {
+        try (MockWebServer mockWebServer = new MockWebServer()) {
+            // Slow enough that every caller arrives while the first load is still in flight
+            mockWebServer.enqueue(new MockResponse().setResponseCode(200)
+                    .setHeadersDelay(500, TimeUnit.MILLISECONDS)
+                    .setBody(DealLoaderTest.SINGLE_DEAL_PAYLOAD));
+            mockWebServer.start();
+            CachedHttpDealsRepository coldRepository = new CachedHttpDealsRepository(realLoader(mockWebServer), new UrlProperties());
+
+            List<Future<List<NormalisedDeal>>> results = runConcurrently(() -> coldRepository.findAllActiveDeals(null));
+            List<NormalisedDeal> first = results.get(0).get();
+            for (Future<List<NormalisedDeal>> result : results) {
+                assertSame(first, result.get(), "Every caller should share the same loaded snapshot");
+            }
+
+            assertEquals(1, mockWebServer.getRequestCount(), "Concurrent callers should be coalesced into one upstream request");
+            assertEquals(1, coldRepository.getReloads().executions());
+            assertEquals(CALLERS - 1, coldRepository.getReloads().coalesced());
+        }
+    }
+
+    @Test
+    void testConcurrentColdStart_SharesFailure() throws Exception {
+        try (MockWebServer mockWebServer = new MockWebServer()) {
+            mockWebServer.enqueue(new MockResponse().setResponseCode(503)
+                    .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+            mockWebServer.start();
+            CachedHttpDealsRepository coldRepository = new CachedHttpDealsRepository(realLoader(mockWebServer), new UrlProperties());
+
+            List<Future<List<NormalisedDeal>>> results = runConcurrently(() -> coldRepository.findAllActiveDeals(null));
+            for (Future<List<NormalisedDeal>> result : results) {
+                ExecutionException e = assertThrows(ExecutionException.class, result::get);
+                assertTrue(e.getCause().getMessage().contains("Failed to load deals"));
+            }
+
+            assertEquals(1, mockWebServer.getRequestCount(), "A failed load should be shared, not retried by each caller");
+        }
+    }
+
+    @Test
+    void testInvalidTimeFormat() throws IOException {
         
         try {
             repository.findAllActiveDeals("2");
@@ -100,5 +265,122 @@ public class CachedHttpDealsRepositoryTest {
         }
         
     }
-    
+
+    @Test
+    void testRestore_ServesPersistedSnapshotBeforeFirstLoad(@TempDir Path dir) throws Exception {
+        LocalTime rOpen = LocalTime.of(15, 0);
+        LocalTime rClose = LocalTime.of(21, 0);
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                rOpen, rClose);
+        NormalisedDeal d2 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(16, 0), LocalTime.of(20, 0),
+                "d2", "20", true, false, 3,
+                rOpen, rClose);
+        UrlProperties props = new UrlProperties();
+        props.setSnapshotFile(dir.resolve("deals.snapshot"));
+
+        when(dealLoader.loadAll()).thenReturn(List.of(d1, d2));
+        CachedHttpDealsRepository first = new CachedHttpDealsRepository(dealLoader, props);
+        first.getSnapshot();
+        first.awaitPersisted();
+        assertTrue(Files.exists(props.getSnapshotFile()), "A successful load should be persisted");
+
+        // Simulated restart: the persisted snapshot serves without touching the upstream
+        CachedHttpDealsRepository restarted = new CachedHttpDealsRepository(dealLoader, props);
+        restarted.restore();
+        assertEquals(List.of(d1, d2), restarted.findAllActiveDeals("16:00"));
+        assertEquals(1, restarted.getSnapshot().version());
+        verify(dealLoader, times(1)).loadAll();
+
+        // The first refresh then replaces it and persists the new version
+        when(dealLoader.loadIfChanged()).thenReturn(Optional.of(List.of(d1)));
+        restarted.refresh();
+        assertEquals(2, restarted.getSnapshot().version());
+        restarted.awaitPersisted();
+        assertEquals(2, SnapshotFile.read(props.getSnapshotFile(), DealStore.Layout.LIST).version());
+    }
+
+    @Test
+    void testRestore_ClaimsSurviveRestart(@TempDir Path dir) throws Exception {
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        UrlProperties props = new UrlProperties();
+        props.setSnapshotFile(dir.resolve("deals.snapshot"));
+        when(dealLoader.loadAll()).thenReturn(List.of(d1));
+        when(dealLoader.loadIfChanged()).thenReturn(Optional.empty());
+
+        CachedHttpDealsRepository first = new CachedHttpDealsRepository(dealLoader, props);
+        first.getSnapshot();
+        first.claim("d1");
+        first.claim("d1");
+        // An unchanged feed does not build a new snapshot, but the claims are still written
+        first.refresh();
+        first.awaitPersisted();
+
+        CachedHttpDealsRepository restarted = new CachedHttpDealsRepository(dealLoader, props);
+        restarted.restore();
+        assertEquals(3, restarted.findAllActiveDeals("16:00").get(0).qtyLeft(), "Claimed units are not handed out again");
+
+        // The same feed quantity after the restart keeps the claims
+        when(dealLoader.loadIfChanged()).thenReturn(Optional.of(List.of(d1)));
+        restarted.refresh();
+        assertEquals(2, restarted.getSnapshot().version());
+        assertEquals(3, restarted.findAllActiveDeals("16:00").get(0).qtyLeft());
+
+        // Claims made just before shutdown are written on close
+        restarted.claim("d1");
+        restarted.close();
+        CachedHttpDealsRepository again = new CachedHttpDealsRepository(dealLoader, props);
+        again.restore();
+        assertEquals(2, again.findAllActiveDeals("16:00").get(0).qtyLeft());
+    }
+
+    @Test
+    void testRestore_IgnoresCorruptFile(@TempDir Path dir) throws Exception {
+        UrlProperties props = new UrlProperties();
+        props.setSnapshotFile(dir.resolve("deals.snapshot"));
+        Files.write(props.getSnapshotFile(), new byte[] {0, 1, 2, 3, 4, 5, 6, 7});
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        when(dealLoader.loadAll()).thenReturn(List.of(d1));
+
+        CachedHttpDealsRepository restarted = new CachedHttpDealsRepository(dealLoader, props);
+        restarted.restore();
+
+        assertEquals(List.of(d1), restarted.findAllActiveDeals("16:00"), "Falls back to loading the feed");
+    }
+
+    private static final int CALLERS = 16;
+
+    private static DealLoader realLoader(MockWebServer mockWebServer) {
+        UrlProperties props = new UrlProperties();
+        props.setUrl(mockWebServer.url("/challenge.json").toString());
+        return new DealLoader(RestClient.create(), new ObjectMapper(), props);
+    }
+
+    // Releases all callers at once and returns their pending results
+    private static <T> List<Future<T>> runConcurrently(Callable<T> call) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            return results;
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
 }
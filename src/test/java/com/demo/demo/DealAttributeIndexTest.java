@@ -0,0 +1,84 @@
+package com.demo.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.demo.benchmark.SyntheticFeed;
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.repository.DealFilter;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.DealStore;
+import com.demo.demo.utils.TimeUtils;
+
+public class DealAttributeIndexTest {
+
+    private static final String[] SUBURBS = {null, "Sydney", "sydney ", "Bondi", "Nowhere"};
+
+    @Test
+    void testFilters_MatchBruteForce() {
+        List<NormalisedDeal> feed = SyntheticFeed.deals(3_000);
+        Random random = new Random(3);
+        for (DealStore.Layout layout : DealStore.Layout.values()) {
+            DealSnapshot snapshot = DealSnapshot.of(1, feed, layout);
+            for (int round = 0; round < 300; round++) {
+                DealFilter filter = new DealFilter(
+                        SUBURBS[random.nextInt(SUBURBS.length)],
+                        random.nextBoolean() ? null : random.nextBoolean(),
+                        random.nextBoolean() ? null : random.nextBoolean(),
+                        random.nextBoolean() ? null : random.nextInt(10),
+                        random.nextBoolean() ? null : 5 * random.nextInt(11));
+                int minute = random.nextInt(4) == 0 ? -1 : random.nextInt(1440);
+
+                List<NormalisedDeal> expected = feed.stream()
+                        .filter(d -> minute < 0 || isActive(d, minute))
+                        .filter(d -> matches(d, filter))
+                        .toList();
+                assertEquals(expected, snapshot.activeAt(minute, filter), layout + " " + filter + " at " + minute);
+            }
+        }
+    }
+
+    @Test
+    void testFilters_DiscountAndMissingValues() {
+        LocalTime open = LocalTime.of(15, 0);
+        LocalTime close = LocalTime.of(21, 0);
+        NormalisedDeal percent = new NormalisedDeal("r1", "eatclub", "addr1", null, open, close, "d1", "30%", true, false, 5, open, close);
+        NormalisedDeal noDiscount = new NormalisedDeal("r1", "eatclub", "addr1", null, open, close, "d2", null, true, false, 5, open, close);
+        NormalisedDeal text = new NormalisedDeal("r1", "eatclub", "addr1", null, open, close, "d3", "half", true, false, 5, open, close);
+        DealSnapshot snapshot = DealSnapshot.of(1, List.of(percent, noDiscount, text));
+
+        assertEquals(List.of(percent), snapshot.activeAt(960, new DealFilter(null, null, null, null, 0)));
+        assertTrue(snapshot.activeAt(960, new DealFilter("Sydney", null, null, null, null)).isEmpty());
+        assertEquals(3, snapshot.activeAt(960, DealFilter.NONE).size());
+    }
+
+    private static boolean isActive(NormalisedDeal deal, int minute) {
+        int start = TimeUtils.toMinuteOfDay(Objects.nonNull(deal.start()) ? deal.start() : deal.restaurantOpen());
+        int end = TimeUtils.toMinuteOfDay(Objects.nonNull(deal.end()) ? deal.end() : deal.restaurantClose());
+        return start >= 0 && end >= 0 && start <= minute && minute <= end;
+    }
+
+    private static boolean matches(NormalisedDeal deal, DealFilter filter) {
+        if (Objects.nonNull(filter.suburb()) && !filter.suburb().trim().equalsIgnoreCase(deal.restaurantSuburb())) {
+            return false;
+        }
+        if (Objects.nonNull(filter.dineIn()) && filter.dineIn() != deal.dineIn()) {
+            return false;
+        }
+        if (Objects.nonNull(filter.lightning()) && filter.lightning() != deal.lightning()) {
+            return false;
+        }
+        if (Objects.nonNull(filter.minQty()) && deal.qtyLeft() < filter.minQty()) {
+            return false;
+        }
+        return Objects.isNull(filter.minDiscount())
+                || Objects.nonNull(deal.discount()) && Integer.parseInt(deal.discount()) >= filter.minDiscount();
+    }
+}
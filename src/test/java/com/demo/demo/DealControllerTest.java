@@ -0,0 +1,277 @@
+package com.demo.demo;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.demo.demo.DTO.ClaimResponse;
+import com.demo.demo.DTO.DealBatchResponse;
+import com.demo.demo.DTO.DealChangesResponse;
+import com.demo.demo.DTO.NextChangeResponse;
+import com.demo.demo.DTO.SerialisedDeals;
+import com.demo.demo.config.ServerTimingFilter;
+import com.demo.demo.controller.DealController;
+import com.demo.demo.exception.GlobalExceptionHandler;
+import com.demo.demo.repository.DealFilter;
+import com.demo.demo.service.DealService;
+import com.demo.demo.service.DealStreamService;
+import com.demo.demo.utils.PipelineMetrics;
+
+@ExtendWith(MockitoExtension.class)
+public class DealControllerTest {
+
+    @Mock
+    DealService dealService;
+
+    @Mock
+    DealStreamService dealStreamService;
+
+    private MockMvc mockMvc;
+
+    private final SerialisedDeals deals = new SerialisedDeals("\"abc\"",
+            "[]".getBytes(StandardCharsets.UTF_8), new byte[] {31, -117});
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(dealService.getResponseLifetime(any())).thenReturn(Duration.ofMinutes(5));
+        mockMvc = MockMvcBuilders.standaloneSetup(new DealController(dealService, dealStreamService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void testGetDeals_ServesCachedBytesWithEtag() throws Exception {
+        when(dealService.getSerialisedDealsActiveAt("14:00", DealFilter.NONE)).thenReturn(deals);
+
+        mockMvc.perform(get("/api/deals").param("timeOfDay", "14:00"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc\""))
+                .andExpect(content().contentType("application/json"))
+                .andExpect(content().string("[]"));
+    }
+
+    @Test
+    void testGetDeals_CacheLifetimeHeaders() throws Exception {
+        when(dealService.getSerialisedDealsActiveAt("7:58pm", DealFilter.NONE)).thenReturn(deals);
+        when(dealService.getResponseLifetime("7:58pm")).thenReturn(Duration.ofMinutes(3));
+
+        mockMvc.perform(get("/api/deals").param("timeOfDay", "7:58pm"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=180"))
+                .andExpect(header().exists("Expires"));
+    }
+
+    @Test
+    void testGetDeals_ServerTimingHeader() throws Exception {
+        MockMvc timed = MockMvcBuilders.standaloneSetup(new DealController(dealService, dealStreamService))
+                .addFilters(new ServerTimingFilter())
+                .build();
+        when(dealService.getSerialisedDealsActiveAt("14:00", DealFilter.NONE)).thenAnswer(invocation -> {
+            PipelineMetrics.Stage.SERIALISE.record(2_000_000);
+            return deals;
+        });
+
+        timed.perform(get("/api/deals").param("timeOfDay", "14:00"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", startsWith("serialise;dur=2.00, total;dur=")));
+        // Without the filter nothing is collected
+        mockMvc.perform(get("/api/deals").param("timeOfDay", "14:00"))
+                .andExpect(header().doesNotExist("Server-Timing"));
+    }
+
+    @Test
+    void testClaimDeal() throws Exception {
+        when(dealService.claimDeal("d1")).thenReturn(new ClaimResponse("d1", true, 4));
+        when(dealService.claimDeal("d2")).thenReturn(new ClaimResponse("d2", false, 0));
+        when(dealService.claimDeal("missing")).thenThrow(new NoSuchElementException("Unknown deal: missing"));
+
+        mockMvc.perform(post("/api/deals/d1/claim"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.claimed").value(true))
+                .andExpect(jsonPath("$.qtyLeft").value(4));
+        mockMvc.perform(post("/api/deals/d2/claim"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.claimed").value(false));
+        mockMvc.perform(post("/api/deals/missing/claim"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetChanges() throws Exception {
+        when(dealService.getChangesSince(3)).thenReturn(new DealChangesResponse(3, 5, false, List.of(), List.of(), List.of("d2")));
+
+        mockMvc.perform(get("/api/deals/changes").param("sinceVersion", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.currentVersion").value(5))
+                .andExpect(jsonPath("$.resync").value(false))
+                .andExpect(jsonPath("$.removed[0]").value("d2"));
+        mockMvc.perform(get("/api/deals/changes"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testStreamDeals_OpensEventStream() throws Exception {
+        SseEmitter emitter = new SseEmitter();
+        when(dealStreamService.subscribe("7")).thenReturn(emitter);
+
+        MvcResult result = mockMvc.perform(get("/api/deals/stream").header("Last-Event-ID", "7"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        emitter.send(SseEmitter.event().name("hello").id("7").data("{\"version\":7}"));
+        emitter.complete();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string("event:hello\nid:7\ndata:{\"version\":7}\n\n"));
+    }
+
+    @Test
+    void testGetDealsBatch() throws Exception {
+        DealFilter filter = new DealFilter("Sydney", true, null, null, null);
+        when(dealService.getDealsActiveAtBatch(List.of("3pm", "6pm"), filter)).thenReturn(new DealBatchResponse(2, Map.of(),
+                List.of(new DealBatchResponse.Result("3pm", "03:00 pm", List.of("d1")),
+                        new DealBatchResponse.Result("6pm", "06:00 pm", List.of("d1", "d2")))));
+        when(dealService.getDealsActiveAtBatch(List.of(), DealFilter.NONE)).thenThrow(new IllegalArgumentException("'times' must not be empty"));
+
+        mockMvc.perform(post("/api/deals/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"times\":[\"3pm\",\"6pm\"],\"suburb\":\"Sydney\",\"dineIn\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(2))
+                .andExpect(jsonPath("$.results[1].dealObjectIds[1]").value("d2"));
+        mockMvc.perform(post("/api/deals/batch").contentType(MediaType.APPLICATION_JSON).content("{\"times\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetNextChange() throws Exception {
+        when(dealService.getNextChange("7:58pm")).thenReturn(new NextChangeResponse("07:58 pm", "08:01 pm", 3));
+
+        mockMvc.perform(get("/api/deals/next-change").param("after", "7:58pm"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextChange").value("08:01 pm"))
+                .andExpect(jsonPath("$.minutesUntilChange").value(3));
+    }
+
+    @Test
+    void testGetDeals_MatchingIfNoneMatchReturns304() throws Exception {
+        when(dealService.getSerialisedDealsActiveAt("14:00", DealFilter.NONE)).thenReturn(deals);
+
+        mockMvc.perform(get("/api/deals").param("timeOfDay", "14:00").header("If-None-Match", "\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testGetDeals_GzipVariant() throws Exception {
+        when(dealService.getSerialisedDealsActiveAt(null, DealFilter.NONE)).thenReturn(deals);
+
+        mockMvc.perform(get("/api/deals").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", "\"abc-gzip\""))
+                .andExpect(content().bytes(deals.gzippedJson()));
+    }
+
+    @Test
+    void testGetDeals_UncompressedResponseGzippedOnDemand() throws Exception {
+        DealFilter filter = new DealFilter("Sydney", null, null, null, null);
+        SerialisedDeals uncompressed = SerialisedDeals.of("[]".getBytes(StandardCharsets.UTF_8), false);
+        when(dealService.getSerialisedDealsActiveAt(null, filter)).thenReturn(uncompressed);
+
+        byte[] body = mockMvc.perform(get("/api/deals").param("suburb", "Sydney").header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertArrayEquals(uncompressed.json(), gzip.readAllBytes());
+        }
+        mockMvc.perform(get("/api/deals").param("suburb", "Sydney"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().string("[]"));
+    }
+
+    @Test
+    void testGetDeals_GzipRefusedWithZeroQuality() throws Exception {
+        when(dealService.getSerialisedDealsActiveAt(null, DealFilter.NONE)).thenReturn(deals);
+
+        for (String refused : List.of("gzip;q=0", "deflate, gzip; q=0.0", "*;q=0", "br, *;q=1, gzip;q=0", "gzip;q=nope")) {
+            mockMvc.perform(get("/api/deals").header("Accept-Encoding", refused))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("Content-Encoding"))
+                    .andExpect(header().string("ETag", "\"abc\""));
+        }
+        for (String accepted : List.of("GZIP;q=0.5", "*", "identity;q=1, *;q=0.1", "gzip;q=0, gzip;q=1")) {
+            mockMvc.perform(get("/api/deals").header("Accept-Encoding", accepted))
+                    .andExpect(header().string("Content-Encoding", "gzip"));
+        }
+    }
+
+    @Test
+    void testGetDeals_GroupByRestaurant() throws Exception {
+        when(dealService.getSerialisedRestaurantsActiveAt("14:00", DealFilter.NONE)).thenReturn(deals);
+
+        mockMvc.perform(get("/api/deals").param("timeOfDay", "14:00").param("groupBy", "restaurant"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc\""))
+                .andExpect(content().string("[]"));
+
+        mockMvc.perform(get("/api/deals").param("groupBy", "suburb"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetDeals_PassesFilters() throws Exception {
+        DealFilter filter = new DealFilter("Sydney", true, null, 2, 25);
+        when(dealService.getSerialisedDealsActiveAt("14:00", filter)).thenReturn(deals);
+
+        mockMvc.perform(get("/api/deals").param("timeOfDay", "14:00")
+                        .param("suburb", "Sydney").param("dineIn", "true").param("minQty", "2").param("minDiscount", "25"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("[]"));
+
+        mockMvc.perform(get("/api/deals").param("minQty", "lots"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetDeals_RangeMode() throws Exception {
+        when(dealService.getSerialisedDealsActiveBetween("12pm", "1pm", DealFilter.NONE)).thenReturn(deals);
+
+        mockMvc.perform(get("/api/deals").param("from", "12pm").param("to", "1pm"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("[]"));
+
+        mockMvc.perform(get("/api/deals").param("timeOfDay", "12pm").param("from", "12pm"))
+                .andExpect(status().isBadRequest());
+    }
+}
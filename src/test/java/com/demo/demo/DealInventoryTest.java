@@ -0,0 +1,212 @@
+package com.demo.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.demo.demo.config.UrlProperties;
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.http.DealLoader;
+import com.demo.demo.repository.DealFilter;
+import com.demo.demo.repository.Impl.CachedHttpDealsRepository;
+import com.demo.demo.repository.snapshot.DealInventory;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+
+@ExtendWith(MockitoExtension.class)
+public class DealInventoryTest {
+
+    private static final int THREADS = 32;
+
+    @Mock
+    DealLoader dealLoader;
+
+    @Test
+    void testClaim_ConcurrentClaimsNeverOversell() throws Exception {
+        int qty = 2_000;
+        DealSnapshot snapshot = DealSnapshot.of(1, List.of(deal("lightning", qty), deal("other", 5)));
+        Set<Integer> handedOut = ConcurrentHashMap.newKeySet();
+        AtomicInteger soldOut = new AtomicInteger();
+
+        runClaimers(() -> {
+            int left;
+            while ((left = snapshot.inventory().claim("lightning")) != DealInventory.SOLD_OUT) {
+                assertTrue(handedOut.add(left), "Unit " + left + " handed out twice");
+            }
+            soldOut.incrementAndGet();
+        }, () -> { });
+
+        // Every unit was handed out exactly once, and every thread eventually saw the deal sold out
+        assertEquals(qty, handedOut.size());
+        assertEquals(0, handedOut.stream().mapToInt(Integer::intValue).min().orElseThrow());
+        assertEquals(qty - 1, handedOut.stream().mapToInt(Integer::intValue).max().orElseThrow());
+        assertEquals(THREADS, soldOut.get());
+        assertEquals(0, snapshot.activeAt(-1, DealFilter.NONE).get(0).qtyLeft());
+        assertEquals(5, snapshot.activeAt(-1, DealFilter.NONE).get(1).qtyLeft(), "Other deals are untouched");
+    }
+
+    @Test
+    void testClaim_RacingRefreshesNeverOversellOrLoseClaims() throws Exception {
+        int qty = 2_000;
+        List<NormalisedDeal> feed = List.of(deal("lightning", qty), deal("other", 5));
+        when(dealLoader.loadAll()).thenReturn(feed);
+        // Every refresh builds a new snapshot from the unchanged feed quantities
+        when(dealLoader.loadIfChanged()).thenReturn(Optional.of(feed));
+        CachedHttpDealsRepository repository = new CachedHttpDealsRepository(dealLoader, new UrlProperties());
+        repository.getSnapshot();
+        Set<Integer> handedOut = ConcurrentHashMap.newKeySet();
+        AtomicBoolean claiming = new AtomicBoolean(true);
+
+        runClaimers(() -> {
+            int left;
+            while ((left = repository.claim("lightning")) != DealInventory.SOLD_OUT) {
+                assertTrue(handedOut.add(left), "Unit " + left + " handed out twice");
+                if (left % 97 == 0) {
+                    // Also refresh from the claiming threads, so swaps race with claims even on one core
+                    repository.refresh();
+                }
+            }
+            claiming.set(false);
+        }, () -> {
+            while (claiming.get()) {
+                repository.refresh();
+            }
+        });
+
+        assertEquals(qty, handedOut.size());
+        assertTrue(repository.getSnapshot().version() > 1, "Refreshes should have replaced the snapshot while claiming");
+        assertEquals(0, repository.findAllActiveDeals(null).get(0).qtyLeft());
+        assertEquals(DealInventory.SOLD_OUT, repository.claim("lightning"));
+    }
+
+    @Test
+    void testClaim_SealedInventoryThatIsNeverReplacedGivesUp() throws Exception {
+        when(dealLoader.loadAll()).thenReturn(List.of(deal("lightning", 5)));
+        CachedHttpDealsRepository repository = new CachedHttpDealsRepository(dealLoader, new UrlProperties());
+        DealSnapshot current = repository.getSnapshot();
+        // Seal the live inventory without publishing a replacement, as a refresh that died mid-swap would
+        DealSnapshot.of(2, List.of(deal("lightning", 5))).inventory().takeOver(current.inventory());
+
+        assertThrows(IllegalStateException.class, () -> repository.claim("lightning"));
+        assertEquals(5, current.deals().get(0).qtyLeft(), "No unit is lost to the failed claim");
+    }
+
+    @Test
+    void testTakeOver_UnchangedFeedQuantityKeepsClaims() {
+        DealSnapshot first = DealSnapshot.of(1, List.of(deal("a", 10), deal("gone", 3)));
+        for (int i = 0; i < 3; i++) {
+            first.inventory().claim("a");
+        }
+
+        DealSnapshot second = DealSnapshot.of(2, List.of(deal("a", 10)));
+        second.inventory().takeOver(first.inventory());
+        assertEquals(7, second.deals().get(0).qtyLeft());
+        assertEquals(DealInventory.MOVED, first.inventory().claim("a"), "The old inventory is sealed");
+        assertEquals(7, first.deals().get(0).qtyLeft(), "Readers of the old snapshot still see its last quantities");
+        assertThrows(NoSuchElementException.class, () -> second.inventory().claim("gone"));
+
+        // Further unchanged refreshes neither pile the claims up nor forget them
+        second.inventory().claim("a");
+        DealSnapshot third = DealSnapshot.of(3, List.of(deal("a", 10)));
+        third.inventory().takeOver(second.inventory());
+        DealSnapshot fourth = DealSnapshot.of(4, List.of(deal("a", 10)));
+        fourth.inventory().takeOver(third.inventory());
+        assertEquals(6, fourth.deals().get(0).qtyLeft());
+    }
+
+    @Test
+    void testTakeOver_ChangedFeedQuantityIsAuthoritative() {
+        DealSnapshot first = DealSnapshot.of(1, List.of(deal("up", 10), deal("down", 10), deal("counted", 10)));
+        for (String id : List.of("up", "down", "counted")) {
+            for (int i = 0; i < 3; i++) {
+                first.inventory().claim(id);
+            }
+        }
+
+        // Restocked, lowered, and lowered by exactly our 3 claims
+        DealSnapshot second = DealSnapshot.of(2, List.of(deal("up", 20), deal("down", 2), deal("counted", 7)));
+        second.inventory().takeOver(first.inventory());
+
+        assertEquals(20, second.deals().get(0).qtyLeft());
+        assertEquals(2, second.deals().get(1).qtyLeft());
+        assertEquals(7, second.deals().get(2).qtyLeft(), "Claims the feed already counts are not taken twice");
+
+        // Claims against the new feed value carry over from there
+        second.inventory().claim("down");
+        DealSnapshot third = DealSnapshot.of(3, List.of(deal("up", 20), deal("down", 2), deal("counted", 7)));
+        third.inventory().takeOver(second.inventory());
+        assertEquals(1, third.deals().get(1).qtyLeft());
+        assertEquals(20, third.deals().get(0).qtyLeft());
+    }
+
+    @Test
+    void testActiveAt_MinQtyUsesLiveQuantities() {
+        DealSnapshot snapshot = DealSnapshot.of(1, List.of(deal("a", 2), deal("b", 5)));
+        DealFilter minQty2 = new DealFilter(null, null, null, 2, null);
+        assertEquals(2, snapshot.activeAt(16 * 60, minQty2).size());
+
+        snapshot.inventory().claim("a");
+
+        List<NormalisedDeal> active = snapshot.activeAt(16 * 60, minQty2);
+        assertEquals(List.of("b"), active.stream().map(NormalisedDeal::dealObjectId).toList());
+        assertEquals(1, snapshot.activeAt(16 * 60).get(0).qtyLeft());
+        assertEquals(1, snapshot.activeBetween(0, 1439, DealFilter.NONE).get(0).qtyLeft());
+        assertEquals(1, snapshot.overlapProfile(minQty2).peakOverlap(), "Peak windows agree with the deals search");
+    }
+
+    private static NormalisedDeal deal(String id, int qty) {
+        return new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                id, "10", true, true, qty,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+    }
+
+    // Releases all claimers and the background task at once, then waits for the claimers
+    private static void runClaimers(Runnable claimer, Runnable background) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> claimers = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                claimers.add(executor.submit(() -> {
+                    start.await();
+                    claimer.run();
+                    return null;
+                }));
+            }
+            Future<?> backgroundTask = executor.submit(() -> {
+                start.await();
+                background.run();
+                return null;
+            });
+            start.countDown();
+            for (Future<?> future : claimers) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            backgroundTask.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -3,25 +3,37 @@ package com.demo.demo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClient;
 
+import com.demo.demo.benchmark.SyntheticFeed;
 import com.demo.demo.config.UrlProperties;
 import com.demo.demo.entity.NormalisedDeal;
 import com.demo.demo.http.DealLoader;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
 
 public class DealLoaderTest {
 
@@ -44,7 +56,7 @@ public class DealLoaderTest {
     }
     
     @Test
-    void loadAll_NormalizesDealTimes_AndParsesFields() throws JsonMappingException, JsonProcessingException {
+    void loadAll_NormalizesDealTimes_AndParsesFields() throws IOException {
         // Given: restaurant open 15:00–21:00
         // - D1 explicitly 14:00–22:00 → should clamp to 15:00–21:00
         // - D2 has no times → falls back to restaurant window 15:00–21:00
@@ -118,6 +130,7 @@ public class DealLoaderTest {
             assertEquals(LocalTime.of(15, 0), nd.restaurantOpen());
             assertEquals(LocalTime.of(21, 0), nd.restaurantClose());
             assertTrue(nd.start().isBefore(nd.end()), "Start should be before end after normalization");
+            assertSame(got.get(0).restaurant(), nd.restaurant(), "Deals of one restaurant should share its instance");
         }
 
         // Deal A: explicit 14:00–22:00 but clamped to 15:00–21:00
@@ -159,4 +172,138 @@ public class DealLoaderTest {
         assertNotNull(got);
         assertTrue(got.isEmpty(), "No restaurants → no deals");
     }
+
+    @Test
+    void loadAll_StreamsRestaurants_SkippingUnrelatedFields() throws Exception {
+        // Unrelated top-level fields (nested objects/arrays) before and after "restaurants"
+        // must be skipped, and deals must keep feed order across restaurants
+        String payload = """
+        {
+          "meta": { "generated": "today", "tags": ["a", {"b": [1, 2]}] },
+          "restaurants": [
+            {
+              "objectId": "r1", "name": "first", "address1": "1 St", "suburb": "Sydney",
+              "open": "9:00am", "close": "5:00pm",
+              "deals": [ { "objectId": "D-1", "discount": "10" }, { "objectId": "D-2", "discount": "20", "start": "10am" } ]
+            },
+            {
+              "objectId": "r2", "name": "second", "address1": "2 St", "suburb": "Melbourne",
+              "open": "12:00", "close": "22:00",
+              "deals": [ { "objectId": "D-3", "discount": "30", "end": "9pm", "qtyLeft": 7 } ]
+            }
+          ],
+          "trailer": [ { "x": 1 } ]
+        }
+        """;
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(payload));
+
+        List<NormalisedDeal> got = dealLoader.loadAll();
+
+        assertEquals(List.of("D-1", "D-2", "D-3"), got.stream().map(NormalisedDeal::dealObjectId).toList());
+        assertEquals(LocalTime.of(9, 0), got.get(0).start());
+        assertEquals(LocalTime.of(10, 0), got.get(1).start());
+        assertEquals("Melbourne", got.get(2).restaurantSuburb());
+        assertEquals(LocalTime.of(21, 0), got.get(2).end());
+        assertEquals(7, got.get(2).qtyLeft());
+    }
+
+    @Test
+    void loadAll_UpstreamError_Throws() {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+        assertThrows(HttpServerErrorException.class, () -> dealLoader.loadAll());
+    }
+
+    @Test
+    void loadIfChanged_SendsIfNoneMatch_AndTreats304AsUnchanged() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("ETag", "\"v1\"")
+                .setBody(SINGLE_DEAL_PAYLOAD));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals(1, dealLoader.loadAll().size());
+        assertTrue(dealLoader.loadIfChanged().isEmpty(), "304 should report the feed as unchanged");
+
+        RecordedRequest first = mockWebServer.takeRequest();
+        RecordedRequest second = mockWebServer.takeRequest();
+        assertEquals("gzip", first.getHeader("Accept-Encoding"));
+        assertNull(first.getHeader("If-None-Match"));
+        assertEquals("\"v1\"", second.getHeader("If-None-Match"));
+    }
+
+    @Test
+    void loadIfChanged_SendsIfModifiedSince() throws Exception {
+        String lastModified = "Wed, 21 Oct 2015 07:28:00 GMT";
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Last-Modified", lastModified)
+                .setBody(SINGLE_DEAL_PAYLOAD));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(304));
+
+        dealLoader.loadAll();
+        assertTrue(dealLoader.loadIfChanged().isEmpty());
+
+        mockWebServer.takeRequest();
+        assertEquals(lastModified, mockWebServer.takeRequest().getHeader("If-Modified-Since"));
+    }
+
+    @Test
+    void loadIfChanged_WithoutValidators_ComparesBodyHash() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(SINGLE_DEAL_PAYLOAD));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(SINGLE_DEAL_PAYLOAD));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{ \"restaurants\": [] }"));
+
+        assertEquals(1, dealLoader.loadAll().size());
+        assertTrue(dealLoader.loadIfChanged().isEmpty(), "Identical body should be skipped");
+        Optional<List<NormalisedDeal>> changed = dealLoader.loadIfChanged();
+        assertTrue(changed.isPresent(), "Different body should be parsed");
+        assertTrue(changed.get().isEmpty());
+    }
+
+    @Test
+    void loadAll_DecodesGzipResponse() throws Exception {
+        Buffer body = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(body))) {
+            sink.writeUtf8(SINGLE_DEAL_PAYLOAD);
+        }
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(body));
+
+        List<NormalisedDeal> got = dealLoader.loadAll();
+
+        assertEquals(1, got.size());
+        assertEquals("D-1", got.get(0).dealObjectId());
+    }
+
+    @Test
+    void parse_ParallelMatchesSequential() throws Exception {
+        // About 2,000 restaurants, so each parallelism splits the feed into many chunks
+        byte[] feed = SyntheticFeed.json(20_000);
+
+        List<NormalisedDeal> sequential = dealLoader.parse(new ByteArrayInputStream(feed), 1);
+        for (int parallelism : new int[] {2, 4, 8}) {
+            assertEquals(sequential, dealLoader.parse(new ByteArrayInputStream(feed), parallelism), "parallelism " + parallelism);
+        }
+    }
+
+    @Test
+    void parse_ParallelSurfacesNormalisationFailure() {
+        // A restaurant without a deals array fails normalisation in both modes
+        byte[] feed = "{\"restaurants\":[{\"objectId\":\"R-1\"}]}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(NullPointerException.class, () -> dealLoader.parse(new ByteArrayInputStream(feed), 1));
+        assertThrows(NullPointerException.class, () -> dealLoader.parse(new ByteArrayInputStream(feed), 4));
+    }
+
+    static final String SINGLE_DEAL_PAYLOAD = """
+        {
+          "restaurants": [
+            {
+              "objectId": "r1", "name": "eatclub", "address1": "fake Street", "suburb": "Sydney",
+              "open": "3:00pm", "close": "9:00pm",
+              "deals": [ { "objectId": "D-1", "discount": "50" } ]
+            }
+          ]
+        }
+        """;
 }
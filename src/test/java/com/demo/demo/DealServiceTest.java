@@ -1,14 +1,28 @@
 package com.demo.demo;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Random;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,12 +30,29 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.demo.demo.DTO.ClaimResponse;
+import com.demo.demo.DTO.DealBatchResponse;
+import com.demo.demo.DTO.DealChangesResponse;
+import com.demo.demo.DTO.DealHistogramResponse;
 import com.demo.demo.DTO.DealResponse;
+import com.demo.demo.DTO.NextChangeResponse;
 import com.demo.demo.DTO.PeakWindowResponse;
+import com.demo.demo.DTO.PeakWindowsResponse;
+import com.demo.demo.DTO.RestaurantDealsResponse;
+import com.demo.demo.DTO.SerialisedDeals;
+import com.demo.demo.benchmark.SyntheticFeed;
+import com.demo.demo.config.UrlProperties;
 import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.entity.Restaurant;
+import com.demo.demo.repository.DealFilter;
 import com.demo.demo.repository.DealsRepository;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.SnapshotDiff;
 import com.demo.demo.service.DealService;
 import com.demo.demo.service.Impl.DealServiceImpl;
+import com.demo.demo.utils.TimeUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @ExtendWith(MockitoExtension.class)
 public class DealServiceTest {
@@ -29,11 +60,13 @@ public class DealServiceTest {
     @Mock
     DealsRepository dealsRepository;
     
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     private DealService dealService;
     
     @BeforeEach
     void setUp() {
-        dealService = new DealServiceImpl(dealsRepository);
+        dealService = new DealServiceImpl(dealsRepository, objectMapper, new UrlProperties());
     }
     
     @Test
@@ -74,14 +107,14 @@ public class DealServiceTest {
     @Test
     void testGetPeakDealWindow_NoDeals() {
     
-        when(dealsRepository.findAllActiveDeals(null)).thenReturn(List.of());
+        when(dealsRepository.getSnapshot()).thenReturn(DealSnapshot.of(1, List.of()));
 
         PeakWindowResponse window = dealService.getPeakDealWindow();
 
         assertEquals(null, window.start());
         assertEquals(null, window.end());
 
-        verify(dealsRepository).findAllActiveDeals(null);
+        verify(dealsRepository).getSnapshot();
         verifyNoMoreInteractions(dealsRepository);
     }
     
@@ -101,14 +134,411 @@ public class DealServiceTest {
                 "d2", "20", true, false, 3,
                 rOpen, rClose);
 
-        when(dealsRepository.findAllActiveDeals(null)).thenReturn(List.of(d1, d2));
+        when(dealsRepository.getSnapshot()).thenReturn(DealSnapshot.of(1, List.of(d1, d2)));
 
         PeakWindowResponse window = dealService.getPeakDealWindow();
 
         assertEquals("04:00 pm", window.start());
         assertEquals("08:00 pm", window.end());
 
-        verify(dealsRepository).findAllActiveDeals(null);
+        verify(dealsRepository).getSnapshot();
         verifyNoMoreInteractions(dealsRepository);
     }
+
+    @Test
+    void testGetSerialisedDealsActiveAt_CachedPerSegment() throws Exception {
+        LocalTime rOpen  = LocalTime.of(15, 0); // 15:00
+        LocalTime rClose = LocalTime.of(21, 0); // 21:00
+
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                rOpen, rClose);
+
+        NormalisedDeal d2 = new NormalisedDeal("r2", "eatclub2", "addr2", "sydney",
+                LocalTime.of(16, 0), LocalTime.of(20, 0),
+                "d2", "20", true, false, 3,
+                rOpen, rClose);
+
+        when(dealsRepository.getSnapshot()).thenReturn(DealSnapshot.of(1, List.of(d1, d2)));
+
+        SerialisedDeals at1700 = dealService.getSerialisedDealsActiveAt("17:00");
+        List<DealResponse> decoded = objectMapper.readValue(at1700.json(), new TypeReference<List<DealResponse>>() {});
+        assertEquals(List.of("d1", "d2"), decoded.stream().map(DealResponse::dealObjeactId).toList());
+        assertEquals("03:00 pm", decoded.get(0).restaurantOpen());
+
+        // 16:00–20:00 is one activity segment, so the same bytes are served
+        assertSame(at1700, dealService.getSerialisedDealsActiveAt("6:30pm"));
+        assertNotEquals(at1700.etag(), dealService.getSerialisedDealsActiveAt("15:30").etag());
+
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(at1700.gzippedJson()))) {
+            assertArrayEquals(at1700.json(), gzip.readAllBytes());
+        }
+
+        // Uncached filtered responses are only compressed when a client asks for gzip
+        SerialisedDeals filtered = dealService.getSerialisedDealsActiveAt("17:00", new DealFilter(null, null, null, 4, null));
+        assertNull(filtered.gzippedJson());
+        assertEquals(1, objectMapper.readValue(filtered.json(), List.class).size());
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(filtered.gzipped()))) {
+            assertArrayEquals(filtered.json(), gzip.readAllBytes());
+        }
+
+        // A new snapshot version invalidates the cache
+        when(dealsRepository.getSnapshot()).thenReturn(DealSnapshot.of(2, List.of(d1)));
+        SerialisedDeals afterRefresh = dealService.getSerialisedDealsActiveAt("17:00");
+        assertNotSame(at1700, afterRefresh);
+        assertEquals(1, objectMapper.readValue(afterRefresh.json(), List.class).size());
+    }
+
+    @Test
+    void testGetSerialisedDealsActiveAt_EvictsLeastRecentlyUsedSegmentsOverBudget() {
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        NormalisedDeal d2 = new NormalisedDeal("r2", "eatclub2", "addr2", "sydney",
+                LocalTime.of(16, 0), LocalTime.of(20, 0),
+                "d2", "20", true, false, 3,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        when(dealsRepository.getSnapshot()).thenReturn(DealSnapshot.of(1, List.of(d1, d2)));
+        // 15:00–16:00 and 20:00–21:00 list only d1, so their bodies are the same size
+        long both = size(dealService.getSerialisedDealsActiveAt("17:00"));
+        long one = size(dealService.getSerialisedDealsActiveAt("15:30"));
+
+        UrlProperties props = new UrlProperties();
+        props.setResponseCacheBudget(both + one);
+        DealServiceImpl bounded = new DealServiceImpl(dealsRepository, objectMapper, props);
+        SerialisedDeals at1700 = bounded.getSerialisedDealsActiveAt("17:00");
+        SerialisedDeals at1530 = bounded.getSerialisedDealsActiveAt("15:30");
+        assertSame(at1700, bounded.getSerialisedDealsActiveAt("17:00"));
+        assertSame(at1530, bounded.getSerialisedDealsActiveAt("15:30"), "Two segments fit the budget");
+
+        // A third segment evicts the least recently used one, 17:00
+        SerialisedDeals at2030 = bounded.getSerialisedDealsActiveAt("20:30");
+        assertEquals(1, bounded.responseCacheEvictions());
+        assertSame(at1530, bounded.getSerialisedDealsActiveAt("15:30"));
+        assertSame(at2030, bounded.getSerialisedDealsActiveAt("20:30"));
+        assertNotSame(at1700, bounded.getSerialisedDealsActiveAt("17:00"));
+        assertEquals(2, bounded.responseCacheEvictions());
+
+        // A body larger than the whole budget is served but never cached
+        props.setResponseCacheBudget(one - 1);
+        SerialisedDeals at1545 = bounded.getSerialisedDealsActiveAt("15:45");
+        assertNotSame(at1545, bounded.getSerialisedDealsActiveAt("15:45"));
+        assertEquals(2, bounded.responseCacheEvictions());
+    }
+
+    private static long size(SerialisedDeals deals) {
+        return deals.json().length + deals.gzippedJson().length;
+    }
+
+    @Test
+    void testGetSerialisedDealsActiveBetween_InclusiveRangeOverlap() throws Exception {
+        LocalTime rOpen = LocalTime.of(11, 0);
+        LocalTime rClose = LocalTime.of(21, 0);
+
+        NormalisedDeal lunch = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(11, 30), LocalTime.of(12, 0),
+                "lunch", "10", true, false, 5,
+                rOpen, rClose);
+        NormalisedDeal dinner = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(18, 0), LocalTime.of(21, 0),
+                "dinner", "20", false, false, 3,
+                rOpen, rClose);
+
+        when(dealsRepository.getSnapshot()).thenReturn(DealSnapshot.of(1, List.of(lunch, dinner)));
+
+        assertEquals(List.of("lunch"), idsBetween("12:00", "1:00pm", DealFilter.NONE), "Deal end is inclusive");
+        assertEquals(List.of(), idsBetween("12:01", "5:59pm", DealFilter.NONE));
+        assertEquals(List.of("lunch", "dinner"), idsBetween("11:00", "18:00", DealFilter.NONE), "Deal start is inclusive");
+        assertEquals(List.of("dinner"), idsBetween("1pm", null, DealFilter.NONE), "A missing bound extends to the end of the day");
+        assertEquals(List.of("lunch"), idsBetween(null, null, new DealFilter(null, true, null, null, null)));
+        assertThrows(IllegalArgumentException.class, () -> dealService.getSerialisedDealsActiveBetween("18:00", "17:00", DealFilter.NONE));
+    }
+
+    private List<String> idsBetween(String from, String to, DealFilter filter) throws Exception {
+        byte[] json = dealService.getSerialisedDealsActiveBetween(from, to, filter).json();
+        return objectMapper.readValue(json, new TypeReference<List<DealResponse>>() {}).stream()
+                .map(DealResponse::dealObjeactId)
+                .toList();
+    }
+
+    @Test
+    void testGetActiveDealHistogram() {
+        LocalTime rOpen  = LocalTime.of(15, 0); // 15:00
+        LocalTime rClose = LocalTime.of(21, 0); // 21:00
+
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                rOpen, rClose);
+
+        NormalisedDeal d2 = new NormalisedDeal("r2", "eatclub2", "addr2", "sydney",
+                LocalTime.of(16, 0), LocalTime.of(20, 0),
+                "d2", "20", true, false, 3,
+                rOpen, rClose);
+
+        when(dealsRepository.getSnapshot()).thenReturn(DealSnapshot.of(1, List.of(d1, d2)));
+
+        DealHistogramResponse histogram = dealService.getActiveDealHistogram("1h", "14:00", "21:59");
+
+        assertEquals(60, histogram.bucketMinutes());
+        assertEquals(2, histogram.activeDeals(), "Both deals are active somewhere in 14:00–21:59");
+        assertEquals(List.of(0, 1, 2, 2, 2, 2, 2, 1),
+                histogram.buckets().stream().map(DealHistogramResponse.Bucket::activeDeals).toList());
+        assertEquals("02:00 pm", histogram.buckets().get(0).start());
+        assertEquals("02:59 pm", histogram.buckets().get(0).end());
+
+        // Each one-minute bucket matches the point query
+        DealHistogramResponse perMinute = dealService.getActiveDealHistogram("1m", "20:00", "20:01");
+        assertEquals(List.of(2, 1), perMinute.buckets().stream().map(DealHistogramResponse.Bucket::activeDeals).toList());
+
+        assertThrows(IllegalArgumentException.class, () -> dealService.getActiveDealHistogram("0m", null, null));
+        // 71582789 * 60 wraps to 44 in int arithmetic
+        assertThrows(IllegalArgumentException.class, () -> dealService.getActiveDealHistogram("71582789h", null, null));
+        assertThrows(IllegalArgumentException.class, () -> dealService.getActiveDealHistogram("15m", "18:00", "17:00"));
+    }
+
+    @Test
+    void testGetSerialisedRestaurantsActiveAt_GroupsDealsUnderSharedRestaurant() throws Exception {
+        Restaurant eatclub = new Restaurant("r1", "eatclub", "addr1", "sydney", LocalTime.of(15, 0), LocalTime.of(21, 0));
+        Restaurant other = new Restaurant("r2", "other", "addr2", "bondi", LocalTime.of(12, 0), LocalTime.of(22, 0));
+
+        NormalisedDeal d1 = new NormalisedDeal(eatclub, LocalTime.of(15, 0), LocalTime.of(21, 0), "d1", "10", true, false, 5);
+        NormalisedDeal d2 = new NormalisedDeal(other, LocalTime.of(16, 0), LocalTime.of(20, 0), "d2", "20", false, true, 3);
+        NormalisedDeal d3 = new NormalisedDeal(eatclub, LocalTime.of(16, 0), LocalTime.of(20, 0), "d3", "30", true, true, 1);
+
+        when(dealsRepository.getSnapshot()).thenReturn(DealSnapshot.of(1, List.of(d1, d2, d3)));
+
+        SerialisedDeals serialised = dealService.getSerialisedRestaurantsActiveAt("17:00");
+        List<RestaurantDealsResponse> restaurants = objectMapper.readValue(serialised.json(), new TypeReference<List<RestaurantDealsResponse>>() {});
+
+        assertEquals(List.of("r1", "r2"), restaurants.stream().map(RestaurantDealsResponse::restaurantObjectId).toList());
+        assertEquals(List.of("d1", "d3"), restaurants.get(0).deals().stream().map(RestaurantDealsResponse.Deal::dealObjectId).toList());
+        assertEquals("03:00 pm", restaurants.get(0).restaurantOpen());
+        assertEquals(new RestaurantDealsResponse.Deal("d2", "20", false, true, 3), restaurants.get(1).deals().get(0));
+
+        assertSame(serialised, dealService.getSerialisedRestaurantsActiveAt("18:00"));
+        assertNotEquals(serialised.etag(), dealService.getSerialisedDealsActiveAt("17:00").etag());
+    }
+
+    @Test
+    void testGetPeakDealWindows_FilteredAndRanked() {
+        Restaurant sydney = new Restaurant("r1", "eatclub", "addr1", "Sydney", LocalTime.of(11, 0), LocalTime.of(22, 0));
+        Restaurant bondi = new Restaurant("r2", "other", "addr2", "Bondi", LocalTime.of(11, 0), LocalTime.of(22, 0));
+
+        List<NormalisedDeal> deals = List.of(
+                new NormalisedDeal(sydney, LocalTime.of(12, 0), LocalTime.of(13, 0), "lunch1", "10", true, false, 5),
+                new NormalisedDeal(sydney, LocalTime.of(12, 0), LocalTime.of(13, 0), "lunch2", "10", true, false, 5),
+                new NormalisedDeal(sydney, LocalTime.of(18, 0), LocalTime.of(19, 0), "dinner", "10", true, false, 5),
+                new NormalisedDeal(bondi, LocalTime.of(18, 0), LocalTime.of(19, 0), "bondi1", "10", false, true, 5),
+                new NormalisedDeal(bondi, LocalTime.of(18, 0), LocalTime.of(19, 0), "bondi2", "10", false, true, 5));
+        when(dealsRepository.getSnapshot()).thenReturn(DealSnapshot.of(1, deals));
+
+        PeakWindowsResponse all = dealService.getPeakDealWindows(2, DealFilter.NONE);
+        assertEquals(List.of(
+                new PeakWindowsResponse.Window("06:00 pm", "07:00 pm", 3),
+                new PeakWindowsResponse.Window("12:00 pm", "01:00 pm", 2)), all.windows());
+        PeakWindowResponse peak = dealService.getPeakDealWindow();
+        assertEquals(peak.start(), all.windows().get(0).start());
+        assertEquals(peak.end(), all.windows().get(0).end());
+
+        PeakWindowsResponse sydneyOnly = dealService.getPeakDealWindows(2, new DealFilter("sydney", null, null, null, null));
+        assertEquals(new PeakWindowsResponse.Window("12:00 pm", "01:00 pm", 2), sydneyOnly.windows().get(0));
+
+        PeakWindowsResponse lightningOnly = dealService.getPeakDealWindows(3, new DealFilter(null, null, true, null, null));
+        assertEquals(List.of(new PeakWindowsResponse.Window("06:00 pm", "07:00 pm", 2)), lightningOnly.windows());
+
+        assertThrows(IllegalArgumentException.class, () -> dealService.getPeakDealWindows(0, DealFilter.NONE));
+    }
+
+    @Test
+    void testGetNextChange_AndResponseLifetime() {
+        LocalTime rOpen = LocalTime.of(15, 0);
+        LocalTime rClose = LocalTime.of(21, 0);
+
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                rOpen, rClose);
+        NormalisedDeal d2 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(16, 0), LocalTime.of(20, 0),
+                "d2", "20", true, false, 3,
+                rOpen, rClose);
+
+        UrlProperties props = new UrlProperties();
+        dealService = new DealServiceImpl(dealsRepository, objectMapper, props);
+        when(dealsRepository.getSnapshot()).thenReturn(DealSnapshot.of(1, List.of(d1, d2)));
+
+        // d2 ends at 20:00 inclusive, so the active set changes at 20:01
+        NextChangeResponse next = dealService.getNextChange("7:58pm");
+        assertEquals("08:01 pm", next.nextChange());
+        assertEquals(3, next.minutesUntilChange());
+        assertEquals("03:00 pm", dealService.getNextChange("2pm").nextChange());
+        assertNull(dealService.getNextChange("21:01").nextChange(), "Nothing changes after the last deal ends");
+
+        // Half a second of slack, as lifetimes are whole seconds
+        when(dealsRepository.nextRefreshAt()).thenReturn(Instant.now().plusMillis(300_500));
+        assertEquals(Duration.ofMinutes(3), dealService.getResponseLifetime("7:58pm"));
+        assertEquals(Duration.ofMinutes(5), dealService.getResponseLifetime("16:00"), "Capped by the time until the next refresh");
+        assertEquals(Duration.ofMinutes(5), dealService.getResponseLifetime(null));
+        assertEquals(Duration.ofMinutes(1), dealService.getResponseLifetime("23:59"), "Valid until midnight after the last change");
+
+        // Late in a refresh cycle only the time left counts, not a full interval
+        when(dealsRepository.nextRefreshAt()).thenReturn(Instant.now().plusMillis(60_500));
+        assertEquals(Duration.ofSeconds(60), dealService.getResponseLifetime("16:00"));
+        assertEquals(Duration.ofSeconds(60), dealService.getResponseLifetime("7:58pm"));
+        when(dealsRepository.nextRefreshAt()).thenReturn(Instant.now().minusSeconds(10));
+        assertEquals(Duration.ZERO, dealService.getResponseLifetime(null), "An overdue refresh is not cached");
+
+        // Before the first scheduled refresh, the interval counts from the snapshot load
+        when(dealsRepository.nextRefreshAt()).thenReturn(null);
+        Duration fromLoad = dealService.getResponseLifetime(null);
+        assertTrue(fromLoad.compareTo(Duration.ofMinutes(5)) <= 0 && fromLoad.compareTo(Duration.ofMinutes(4)) > 0, fromLoad.toString());
+
+        // Opting in to a live-quantity cap keeps every response short-lived
+        props.setLiveQuantityMaxAge(Duration.ofSeconds(2));
+        assertEquals(Duration.ofSeconds(2), dealService.getResponseLifetime("7:58pm"));
+        assertEquals(Duration.ofSeconds(2), dealService.getResponseLifetime(null));
+
+        assertThrows(IllegalArgumentException.class, () -> dealService.getNextChange(null));
+    }
+
+    @Test
+    void testClaimDeal_ClaimsWithinStalenessShareCachedResponse() {
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        DealSnapshot snapshot = DealSnapshot.of(1, List.of(d1));
+        UrlProperties props = new UrlProperties();
+        props.setQuantityStaleness(Duration.ofHours(1));
+        dealService = new DealServiceImpl(dealsRepository, objectMapper, props);
+        when(dealsRepository.getSnapshot()).thenReturn(snapshot);
+        when(dealsRepository.claim("d1")).thenAnswer(invocation -> snapshot.inventory().claim("d1"));
+
+        SerialisedDeals before = dealService.getSerialisedDealsActiveAt("16:00");
+        dealService.claimDeal("d1");
+        dealService.claimDeal("d1");
+
+        assertSame(before, dealService.getSerialisedDealsActiveAt("16:00"), "Claims must not empty the cache on every claim");
+
+        props.setQuantityStaleness(Duration.ZERO);
+        assertTrue(new String(dealService.getSerialisedDealsActiveAt("16:00").json(), StandardCharsets.UTF_8).contains("\"qtyLeft\":3"),
+                "Past the staleness window the next response shows the claims");
+    }
+
+    @Test
+    void testClaimDeal_LiveQuantityInvalidatesCachedResponse() {
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        DealSnapshot snapshot = DealSnapshot.of(1, List.of(d1));
+        when(dealsRepository.getSnapshot()).thenReturn(snapshot);
+        when(dealsRepository.claim("d1")).thenAnswer(invocation -> snapshot.inventory().claim("d1"));
+        UrlProperties props = new UrlProperties();
+        props.setQuantityStaleness(Duration.ZERO);
+        dealService = new DealServiceImpl(dealsRepository, objectMapper, props);
+
+        SerialisedDeals before = dealService.getSerialisedDealsActiveAt("16:00");
+        assertSame(before, dealService.getSerialisedDealsActiveAt("16:00"));
+
+        assertEquals(new ClaimResponse("d1", true, 4), dealService.claimDeal("d1"));
+
+        SerialisedDeals after = dealService.getSerialisedDealsActiveAt("16:00");
+        assertNotEquals(before.etag(), after.etag(), "A claim must change the cached response");
+        assertTrue(new String(after.json(), StandardCharsets.UTF_8).contains("\"qtyLeft\":4"));
+
+        for (int i = 0; i < 4; i++) {
+            dealService.claimDeal("d1");
+        }
+        assertEquals(new ClaimResponse("d1", false, 0), dealService.claimDeal("d1"));
+    }
+
+    @Test
+    void testGetChangesSince_PayloadsFromCurrentSnapshot() {
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        NormalisedDeal d2 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(16, 0), LocalTime.of(20, 0),
+                "d2", "20", true, false, 3,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        DealSnapshot snapshot = DealSnapshot.of(4, List.of(d1, d2));
+        snapshot.inventory().claim("d2");
+        when(dealsRepository.getSnapshot()).thenReturn(snapshot);
+        when(dealsRepository.changesSince(3, 4)).thenReturn(Optional.of(new SnapshotDiff(3, 4, List.of("d2"), List.of("d1"), List.of("d9"))));
+        when(dealsRepository.changesSince(1, 4)).thenReturn(Optional.empty());
+
+        DealChangesResponse changes = dealService.getChangesSince(3);
+        assertFalse(changes.resync());
+        assertEquals(4, changes.currentVersion());
+        assertEquals(List.of("d2"), changes.added().stream().map(DealResponse::dealObjeactId).toList());
+        assertEquals(2, changes.added().get(0).qtyLeft(), "Payloads carry the live quantity");
+        assertEquals("d1", changes.modified().get(0).dealObjeactId());
+        assertEquals(List.of("d9"), changes.removed());
+
+        assertEquals(new DealChangesResponse(1, 4, true, List.of(), List.of(), List.of()), dealService.getChangesSince(1));
+    }
+
+    @Test
+    void testGetDealsActiveAtBatch_OneSnapshotAndEachDealOnce() {
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        NormalisedDeal d2 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(16, 0), LocalTime.of(20, 0),
+                "d2", "20", false, false, 1,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        DealSnapshot snapshot = DealSnapshot.of(7, List.of(d1, d2));
+        snapshot.inventory().claim("d2");
+        when(dealsRepository.getSnapshot()).thenReturn(snapshot);
+
+        DealBatchResponse batch = dealService.getDealsActiveAtBatch(List.of("3pm", "17:00", "6pm", "22:00"), DealFilter.NONE);
+
+        assertEquals(7, batch.version());
+        assertEquals(List.of("d1", "d2"), List.copyOf(batch.deals().keySet()), "Each deal is sent once");
+        assertEquals(0, batch.deals().get("d2").qtyLeft(), "Payloads carry the live quantity");
+        assertEquals(List.of(List.of("d1"), List.of("d1", "d2"), List.of("d1", "d2"), List.of()),
+                batch.results().stream().map(DealBatchResponse.Result::dealObjectIds).toList());
+        assertEquals("17:00", batch.results().get(1).timeOfDay());
+        verify(dealsRepository, times(1)).getSnapshot();
+
+        // minQty uses the live quantities, like the single-time query
+        DealBatchResponse filtered = dealService.getDealsActiveAtBatch(List.of("6pm"), new DealFilter(null, null, null, 1, null));
+        assertEquals(List.of("d1"), filtered.results().get(0).dealObjectIds());
+        assertEquals(List.of("d1"), List.copyOf(filtered.deals().keySet()));
+    }
+
+    @Test
+    void testGetDealsActiveAtBatch_MatchesSingleTimeQueries() {
+        DealSnapshot snapshot = DealSnapshot.of(1, SyntheticFeed.deals(2_000));
+        when(dealsRepository.getSnapshot()).thenReturn(snapshot);
+        DealFilter filter = new DealFilter(null, true, null, 3, null);
+        Random random = new Random(29);
+        List<String> times = random.ints(48, 0, 24 * 60)
+                .mapToObj(m -> String.format("%d:%02d", m / 60, m % 60))
+                .toList();
+
+        DealBatchResponse batch = dealService.getDealsActiveAtBatch(times, filter);
+
+        for (int i = 0; i < times.size(); i++) {
+            List<DealResponse> single = snapshot.activeAt(TimeUtils.parseMinuteOfDay(times.get(i)), filter).stream()
+                    .map(deal -> batch.deals().get(deal.dealObjectId()))
+                    .toList();
+            assertEquals(single.size(), batch.results().get(i).dealObjectIds().size(), times.get(i));
+            assertEquals(single, batch.results().get(i).dealObjectIds().stream().map(batch.deals()::get).toList(), times.get(i));
+        }
+    }
+
+    @Test
+    void testGetDealsActiveAtBatch_RejectsEmptyOrInvalidTimes() {
+        assertThrows(IllegalArgumentException.class, () -> dealService.getDealsActiveAtBatch(List.of(), DealFilter.NONE));
+        assertThrows(IllegalArgumentException.class, () -> dealService.getDealsActiveAtBatch(null, DealFilter.NONE));
+        assertThrows(IllegalArgumentException.class, () -> dealService.getDealsActiveAtBatch(List.of("2pm", "soon"), DealFilter.NONE));
+        assertThrows(IllegalArgumentException.class, () -> dealService.getDealsActiveAtBatch(List.of("2pm", " "), DealFilter.NONE));
+    }
 }
@@ -0,0 +1,66 @@
+package com.demo.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.demo.benchmark.SyntheticFeed;
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.DealStore;
+
+public class DealStoreTest {
+
+    @Test
+    void testColumnarStore_MaterialisesEqualDeals() {
+        List<NormalisedDeal> feed = SyntheticFeed.deals(5_000);
+        DealStore list = DealStore.of(feed, DealStore.Layout.LIST);
+        DealStore columnar = DealStore.of(feed, DealStore.Layout.COLUMNAR);
+
+        assertEquals(feed.size(), columnar.size());
+        for (int pos = 0; pos < feed.size(); pos++) {
+            assertEquals(feed.get(pos), columnar.get(pos), "position " + pos);
+            assertEquals(list.startMinute(pos), columnar.startMinute(pos), "start, position " + pos);
+            assertEquals(list.endMinute(pos), columnar.endMinute(pos), "end, position " + pos);
+        }
+        assertEquals(feed, columnar.asList());
+    }
+
+    @Test
+    void testColumnarStore_KeepsMissingTimesAndFallsBackToRestaurantHours() {
+        NormalisedDeal noTimes = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                null, null,
+                "d1", null, false, true, 0,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        NormalisedDeal noHours = new NormalisedDeal("r2", "other", null, null,
+                null, null,
+                "d2", "10", true, false, 3,
+                null, null);
+
+        DealStore columnar = DealStore.of(List.of(noTimes, noHours), DealStore.Layout.COLUMNAR);
+
+        assertEquals(noTimes, columnar.get(0));
+        assertEquals(noHours, columnar.get(1));
+        assertEquals(900, columnar.startMinute(0));
+        assertEquals(1260, columnar.endMinute(0));
+        assertEquals(-1, columnar.startMinute(1));
+        assertThrows(UnsupportedOperationException.class, () -> columnar.asList().add(noTimes));
+    }
+
+    @Test
+    void testSnapshotQueries_MatchAcrossLayouts() {
+        List<NormalisedDeal> feed = SyntheticFeed.deals(2_000);
+        DealSnapshot list = DealSnapshot.of(1, feed, DealStore.Layout.LIST);
+        DealSnapshot columnar = DealSnapshot.of(1, feed, DealStore.Layout.COLUMNAR);
+
+        for (int minute = 0; minute < 1440; minute += 7) {
+            assertEquals(list.activeAt(minute), columnar.activeAt(minute), "minute " + minute);
+        }
+        assertEquals(list.overlapProfile().peakStart(), columnar.overlapProfile().peakStart());
+        assertEquals(list.overlapProfile().peakEnd(), columnar.overlapProfile().peakEnd());
+    }
+}
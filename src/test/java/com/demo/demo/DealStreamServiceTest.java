@@ -0,0 +1,285 @@
+package com.demo.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.demo.demo.config.UrlProperties;
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.repository.DealsRepository;
+import com.demo.demo.repository.SnapshotRefreshedEvent;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.SnapshotDiff;
+import com.demo.demo.service.Impl.DealStreamServiceImpl;
+import com.demo.demo.utils.TimeUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+public class DealStreamServiceTest {
+
+    @Mock
+    DealsRepository dealsRepository;
+
+    private final UrlProperties urlProperties = new UrlProperties();
+
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private DealStreamServiceImpl streamService;
+
+    // Makes the next subscriber a client whose first read blocks until released
+    private boolean slowNext;
+
+    // 15:00–21:00, 16:00–20:00, 23:00–23:59 and 00:00–01:00
+    private final DealSnapshot snapshot = DealSnapshot.of(3, List.of(
+            deal("d1", LocalTime.of(15, 0), LocalTime.of(21, 0)),
+            deal("d2", LocalTime.of(16, 0), LocalTime.of(20, 0)),
+            deal("d3", LocalTime.of(23, 0), LocalTime.of(23, 59)),
+            deal("d4", LocalTime.of(0, 0), LocalTime.of(1, 0))));
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(dealsRepository.getSnapshot()).thenReturn(snapshot);
+        streamService = new DealStreamServiceImpl(dealsRepository, new ObjectMapper(), urlProperties) {
+            @Override
+            protected SseEmitter newEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter(slowNext);
+                slowNext = false;
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamService.close();
+    }
+
+    @Test
+    void testSubscribe_HelloOrCatchUpFromLastEventId() throws Exception {
+        when(dealsRepository.changesSince(2, 3)).thenReturn(Optional.of(new SnapshotDiff(2, 3, List.of("d2"), List.of(), List.of("d9"))));
+        when(dealsRepository.changesSince(1, 3)).thenReturn(Optional.empty());
+        // No subscribers yet, so this only moves the stream to 17:00
+        streamService.advanceTo(17 * 60);
+
+        streamService.subscribe(null);
+        streamService.subscribe("3:1020");
+        streamService.subscribe("2:1020");
+        streamService.subscribe("1:1020");
+        streamService.subscribe("3");
+
+        assertTrue(next(emitters.get(0)).startsWith("event:hello\nid:3:1020\ndata:{\"version\":3"));
+        assertTrue(next(emitters.get(1)).startsWith("event:hello\nid:3:1020\n"));
+        String changes = next(emitters.get(2));
+        assertTrue(changes.startsWith("event:changes\nid:3:1020\n"), changes);
+        assertTrue(changes.contains("\"sinceVersion\":2") && changes.contains("\"removed\":[\"d9\"]"), changes);
+        assertTrue(next(emitters.get(3)).startsWith("event:resync\nid:3:1020\n"), "History no longer reaches version 1");
+        assertTrue(next(emitters.get(4)).startsWith("event:resync\nid:3:1020\n"), "A version alone does not say which activity was missed");
+        assertEquals(5, streamService.subscriberCount());
+    }
+
+    @Test
+    void testSubscribe_ReplaysActivityMissedWhileOffline() throws Exception {
+        when(dealsRepository.changesSince(2, 3)).thenReturn(Optional.of(new SnapshotDiff(2, 3, List.of(), List.of("d1"), List.of())));
+        streamService.advanceTo(17 * 60);
+
+        // Same version, last seen at 14:00: d1 started at 15:00 and d2 at 16:00 since
+        streamService.subscribe("3:840");
+        RecordingEmitter sameVersion = emitters.get(0);
+        assertActivity(next(sameVersion), LocalTime.of(15, 0), List.of("d1"), List.of());
+        assertActivity(next(sameVersion), LocalTime.of(16, 0), List.of("d2"), List.of());
+        assertTrue(sameVersion.events.isEmpty(), "No hello after a catch-up");
+
+        // Older version, last seen at 23:30 the day before: changes first, then the activity across midnight
+        streamService.subscribe("2:1410");
+        RecordingEmitter olderVersion = emitters.get(1);
+        assertTrue(next(olderVersion).startsWith("event:changes\nid:3:1020\n"));
+        assertActivity(next(olderVersion), LocalTime.of(0, 0), List.of("d4"), List.of("d3"));
+        assertActivity(next(olderVersion), LocalTime.of(1, 1), List.of(), List.of("d4"));
+        assertActivity(next(olderVersion), LocalTime.of(15, 0), List.of("d1"), List.of());
+        assertActivity(next(olderVersion), LocalTime.of(16, 0), List.of("d2"), List.of());
+
+        // Live events continue from where the catch-up stopped
+        streamService.advanceTo(20 * 60 + 1);
+        assertActivity(next(sameVersion), LocalTime.of(20, 1), List.of(), List.of("d2"));
+        assertActivity(next(olderVersion), LocalTime.of(20, 1), List.of(), List.of("d2"));
+    }
+
+    @Test
+    void testAdvanceTo_PushesEveryBoundaryInOrderAcrossMidnight() throws Exception {
+        streamService.subscribe(null);
+        RecordingEmitter emitter = emitters.get(0);
+        next(emitter);
+
+        // The first tick only sets the clock
+        streamService.advanceTo(14 * 60);
+        assertEquals(":heartbeat\n\n", next(emitter));
+
+        streamService.advanceTo(17 * 60);
+        assertActivity(next(emitter), LocalTime.of(15, 0), List.of("d1"), List.of());
+        assertActivity(next(emitter), LocalTime.of(16, 0), List.of("d2"), List.of());
+
+        streamService.advanceTo(30);
+        assertActivity(next(emitter), LocalTime.of(20, 1), List.of(), List.of("d2"));
+        assertActivity(next(emitter), LocalTime.of(21, 1), List.of(), List.of("d1"));
+        assertActivity(next(emitter), LocalTime.of(23, 0), List.of("d3"), List.of());
+        assertActivity(next(emitter), LocalTime.of(0, 0), List.of("d4"), List.of("d3"));
+
+        streamService.advanceTo(31);
+        assertEquals(":heartbeat\n\n", next(emitter), "No boundary in (00:30, 00:31]");
+        assertTrue(emitter.events.isEmpty());
+    }
+
+    @Test
+    void testOnRefresh_PushesChangesWithLivePayloads() throws Exception {
+        streamService.subscribe(null);
+        next(emitters.get(0));
+        DealSnapshot next = DealSnapshot.of(4, List.of(
+                deal("d1", LocalTime.of(15, 0), LocalTime.of(21, 0)),
+                deal("d5", LocalTime.of(12, 0), LocalTime.of(13, 0))));
+        next.inventory().claim("d5");
+
+        streamService.onRefresh(new SnapshotRefreshedEvent(snapshot, next, SnapshotDiff.between(snapshot, next)));
+
+        String changes = next(emitters.get(0));
+        assertTrue(changes.startsWith("event:changes\nid:4:"), changes);
+        assertTrue(changes.contains("\"dealObjeactId\":\"d5\"") && changes.contains("\"qtyLeft\":4"), changes);
+        assertTrue(changes.contains("\"removed\":[\"d2\",\"d3\",\"d4\"]"), changes);
+    }
+
+    @Test
+    void testSlowSubscriber_GetsResyncWithoutDelayingOthers() throws Exception {
+        urlProperties.getStream().setBufferSize(4);
+        slowNext = true;
+        streamService.subscribe(null);
+        streamService.subscribe(null);
+        RecordingEmitter slow = emitters.get(0);
+        RecordingEmitter fast = emitters.get(1);
+        next(fast);
+        // The slow client's first send blocks until released, so its queue fills up
+        assertTrue(slow.blocked.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 20; i++) {
+            streamService.onRefresh(new SnapshotRefreshedEvent(snapshot, snapshot, new SnapshotDiff(3, 3, List.of(), List.of("d1"), List.of())));
+            assertTrue(next(fast).startsWith("event:changes"), "Fast client gets every event while the slow one is stuck");
+        }
+        assertEquals(1, streamService.overflows(), "One overflow per episode, however many events are dropped");
+
+        slow.release.countDown();
+        List<String> received = new ArrayList<>();
+        String event;
+        while ((event = slow.events.poll(1, TimeUnit.SECONDS)) != null) {
+            received.add(event);
+        }
+        assertEquals(2, received.size(), "The blocked hello, then the resync in place of the backlog: " + received);
+        assertTrue(received.get(1).startsWith("event:resync"), received.get(1));
+
+        // Caught up again: events flow one by one
+        streamService.onRefresh(new SnapshotRefreshedEvent(snapshot, snapshot, new SnapshotDiff(3, 3, List.of(), List.of("d1"), List.of())));
+        assertTrue(next(slow).startsWith("event:changes"));
+        assertEquals(1, streamService.overflows());
+    }
+
+    @Test
+    void testManyIdleSubscribers_OneSerialisationFansOutToAll() throws Exception {
+        int subscribers = 10_000;
+        urlProperties.getStream().setMaxSubscribers(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            streamService.subscribe(null);
+        }
+        ResponseStatusException full = assertThrows(ResponseStatusException.class, () -> streamService.subscribe(null));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, full.getStatusCode());
+
+        streamService.onRefresh(new SnapshotRefreshedEvent(snapshot, snapshot, new SnapshotDiff(3, 3, List.of(), List.of("d1"), List.of())));
+
+        for (RecordingEmitter emitter : emitters) {
+            next(emitter);
+            assertTrue(next(emitter).startsWith("event:changes"));
+        }
+    }
+
+    @Test
+    void testSubscribe_FailedInitialLoadRegistersNothing() {
+        when(dealsRepository.getSnapshot()).thenThrow(new RuntimeException("Failed to load deals"));
+
+        assertThrows(RuntimeException.class, () -> streamService.subscribe(null));
+        assertEquals(0, streamService.subscriberCount());
+    }
+
+    private static void assertActivity(String event, LocalTime time, List<String> activated, List<String> expired) {
+        assertTrue(event.startsWith("event:activity\nid:3:" + TimeUtils.toMinuteOfDay(time) + "\n"), event);
+        assertTrue(event.contains("\"time\":\"" + TimeUtils.formatTime(time) + "\""), event);
+        for (String id : activated) {
+            assertTrue(event.contains("\"dealObjeactId\":\"" + id + "\""), event);
+        }
+        String expiredJson = expired.isEmpty() ? "[]" : "[\"" + String.join("\",\"", expired) + "\"]";
+        assertTrue(event.contains("\"expired\":" + expiredJson), event);
+    }
+
+    private static String next(RecordingEmitter emitter) throws InterruptedException {
+        String event = emitter.events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(event, "No event received");
+        return event;
+    }
+
+    private static NormalisedDeal deal(String id, LocalTime start, LocalTime end) {
+        return new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                start, end, id, "10", true, false, 5,
+                LocalTime.of(0, 0), LocalTime.of(23, 59));
+    }
+
+    // Records what a connected client would read
+    static final class RecordingEmitter extends SseEmitter {
+
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        private boolean slow;
+
+        RecordingEmitter(boolean slow) {
+            this.slow = slow;
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            if (slow) {
+                slow = false;
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            StringBuilder event = new StringBuilder();
+            items.forEach(item -> event.append(item.getData()));
+            events.add(event.toString());
+        }
+    }
+}
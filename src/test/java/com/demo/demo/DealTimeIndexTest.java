@@ -0,0 +1,170 @@
+package com.demo.demo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.demo.repository.snapshot.DealTimeIndex;
+import com.demo.demo.repository.snapshot.MinuteActivityTable;
+
+public class DealTimeIndexTest {
+
+    @Test
+    void testActiveAt_InclusiveBoundaries() {
+        // D0: 15:00–21:00, D1: 16:00–20:00, D2: unknown start, D3: start after end
+        int[] starts = {900, 960, -1, 1000};
+        int[] ends = {1260, 1200, 1200, 990};
+
+        DealTimeIndex index = DealTimeIndex.build(starts, ends);
+
+        assertEquals(2, index.size(), "Unknown and inverted windows should not be indexed");
+        assertArrayEquals(new int[] {0}, index.activeAt(900), "Start is inclusive");
+        assertArrayEquals(new int[] {0, 1}, index.activeAt(960));
+        assertArrayEquals(new int[] {0, 1}, index.activeAt(1200), "End is inclusive");
+        assertArrayEquals(new int[] {0}, index.activeAt(1260));
+        assertArrayEquals(new int[] {}, index.activeAt(899));
+        assertArrayEquals(new int[] {}, index.activeAt(1261));
+    }
+
+    @Test
+    void testActiveAt_MatchesLinearScan() {
+        Random random = new Random(42);
+        int n = 5_000;
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = random.nextInt(DealTimeIndex.MINUTES_PER_DAY);
+            ends[i] = random.nextInt(DealTimeIndex.MINUTES_PER_DAY);
+        }
+
+        DealTimeIndex index = DealTimeIndex.build(starts, ends);
+
+        for (int minute = 0; minute < DealTimeIndex.MINUTES_PER_DAY; minute++) {
+            int m = minute;
+            int[] expected = IntStream.range(0, n)
+                    .filter(i -> starts[i] <= m && m <= ends[i])
+                    .toArray();
+            assertArrayEquals(expected, index.activeAt(minute), "Mismatch at minute " + minute);
+        }
+    }
+
+    @Test
+    void testActiveBetween_MatchesLinearScan() {
+        Random random = new Random(9);
+        int n = 3_000;
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = random.nextInt(DealTimeIndex.MINUTES_PER_DAY);
+            ends[i] = random.nextInt(10) == 0 ? -1 : random.nextInt(DealTimeIndex.MINUTES_PER_DAY);
+        }
+
+        DealTimeIndex index = DealTimeIndex.build(starts, ends);
+
+        for (int round = 0; round < 2_000; round++) {
+            int from = random.nextInt(DealTimeIndex.MINUTES_PER_DAY);
+            int to = from + random.nextInt(Math.min(DealTimeIndex.MINUTES_PER_DAY - from, round % 2 == 0 ? 60 : DealTimeIndex.MINUTES_PER_DAY));
+            int[] expected = IntStream.range(0, n)
+                    .filter(i -> ends[i] >= 0 && starts[i] <= ends[i] && starts[i] <= to && ends[i] >= from)
+                    .toArray();
+            assertArrayEquals(expected, index.activeBetween(from, to), "Mismatch for [" + from + ", " + to + "]");
+        }
+        assertArrayEquals(index.activeAt(700), index.activeBetween(700, 700), "A one-minute range is a point query");
+    }
+
+    @Test
+    void testMinuteActivityTable_MatchesIndex() {
+        Random random = new Random(7);
+        int n = 2_000;
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            // Quarter-hour boundaries like the real feed
+            starts[i] = random.nextInt(96) * 15;
+            ends[i] = Math.min(starts[i] + random.nextInt(48) * 15, DealTimeIndex.MINUTES_PER_DAY - 1);
+        }
+
+        DealTimeIndex index = DealTimeIndex.build(starts, ends);
+        MinuteActivityTable table = MinuteActivityTable.build(starts, ends, index);
+
+        for (int minute = 0; minute < DealTimeIndex.MINUTES_PER_DAY; minute++) {
+            assertArrayEquals(index.activeAt(minute), table.activeAt(minute), "Mismatch at minute " + minute);
+            assertTrue(minute >= table.segmentStart(table.segmentAt(minute)));
+            int next = table.nextChangeAfter(minute);
+            if (next >= 0) {
+                assertTrue(next > minute);
+                assertFalse(Arrays.equals(table.activeAt(minute), table.activeAt(next)), "Active set should change at " + next);
+                assertArrayEquals(table.activeAt(minute), table.activeAt(next - 1));
+            }
+        }
+        assertTrue(table.segmentCount() <= 96 * 2, "Quarter-hour windows should need at most two boundaries per slot");
+    }
+
+    @Test
+    void testMinuteActivityTable_OverBudgetFallsBackToIndex() {
+        Random random = new Random(19);
+        int n = 2_000;
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            // Arbitrary minutes, so nearly every minute is a boundary
+            starts[i] = random.nextInt(DealTimeIndex.MINUTES_PER_DAY);
+            ends[i] = Math.min(starts[i] + random.nextInt(600), DealTimeIndex.MINUTES_PER_DAY - 1);
+        }
+        DealTimeIndex index = DealTimeIndex.build(starts, ends);
+        MinuteActivityTable stored = MinuteActivityTable.build(starts, ends, index);
+        MinuteActivityTable capped = MinuteActivityTable.build(starts, ends, index, stored.storedPositions() - 1);
+
+        assertTrue(stored.isStored());
+        assertFalse(capped.isStored());
+        assertEquals(0, capped.storedPositions());
+        assertTrue(MinuteActivityTable.build(starts, ends, index, stored.storedPositions()).isStored(), "The budget is inclusive");
+        assertEquals(stored.segmentCount(), capped.segmentCount());
+        for (int minute = 0; minute < DealTimeIndex.MINUTES_PER_DAY; minute++) {
+            assertArrayEquals(stored.activeAt(minute), capped.activeAt(minute), "active at " + minute);
+            assertArrayEquals(stored.activatedAt(minute), capped.activatedAt(minute), "activated at " + minute);
+            assertArrayEquals(stored.expiredAt(minute), capped.expiredAt(minute), "expired at " + minute);
+            assertEquals(stored.nextChangeAfter(minute), capped.nextChangeAfter(minute));
+        }
+    }
+
+    @Test
+    void testMinuteActivityTable_ActivatedAndExpiredMatchLinearScan() {
+        Random random = new Random(13);
+        int n = 500;
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = random.nextInt(96) * 15;
+            ends[i] = Math.min(starts[i] + random.nextInt(48) * 15, DealTimeIndex.MINUTES_PER_DAY - 1);
+        }
+        MinuteActivityTable table = MinuteActivityTable.build(starts, ends, DealTimeIndex.build(starts, ends));
+
+        for (int minute = 0; minute < DealTimeIndex.MINUTES_PER_DAY; minute++) {
+            int m = minute;
+            int before = (minute + DealTimeIndex.MINUTES_PER_DAY - 1) % DealTimeIndex.MINUTES_PER_DAY;
+            int[] activated = IntStream.range(0, n)
+                    .filter(i -> starts[i] <= m && m <= ends[i] && !(starts[i] <= before && before <= ends[i]))
+                    .toArray();
+            int[] expired = IntStream.range(0, n)
+                    .filter(i -> starts[i] <= before && before <= ends[i] && !(starts[i] <= m && m <= ends[i]))
+                    .toArray();
+            assertArrayEquals(activated, table.activatedAt(minute), "activated at " + minute);
+            assertArrayEquals(expired, table.expiredAt(minute), "expired at " + minute);
+        }
+    }
+
+    @Test
+    void testActiveAt_EmptyIndex() {
+        DealTimeIndex index = DealTimeIndex.build(new int[0], new int[0]);
+        assertEquals(0, index.size());
+        assertArrayEquals(new int[] {}, index.activeAt(720));
+    }
+}
@@ -0,0 +1,184 @@
+package com.demo.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.demo.repository.snapshot.DealTimeIndex;
+import com.demo.demo.repository.snapshot.OverlapProfile;
+
+public class OverlapProfileTest {
+
+    @Test
+    void testPeakWindow_OverlappingDeals() {
+        // 15:00–21:00 and 16:00–20:00 overlap the most in 16:00–20:00
+        OverlapProfile profile = OverlapProfile.build(new int[] {900, 960}, new int[] {1260, 1200});
+
+        assertEquals(960, profile.peakStart());
+        assertEquals(1200, profile.peakEnd());
+        assertEquals(2, profile.peakOverlap());
+        assertEquals(1, profile.overlapAt(900));
+        assertEquals(2, profile.overlapAt(1199));
+        assertEquals(1, profile.overlapAt(1200), "End is exclusive for overlap counting");
+        assertEquals(0, profile.overlapAt(1260));
+    }
+
+    @Test
+    void testPeakWindow_NoDeals() {
+        OverlapProfile profile = OverlapProfile.build(new int[0], new int[0]);
+        assertFalse(profile.hasPeak());
+        assertEquals(-1, profile.peakStart());
+    }
+
+    @Test
+    void testPeakWindow_MatchesTreeMapSweep() {
+        Random random = new Random(11);
+        for (int round = 0; round < 500; round++) {
+            int n = 1 + random.nextInt(40);
+            int[] starts = new int[n];
+            int[] ends = new int[n];
+            for (int i = 0; i < n; i++) {
+                starts[i] = random.nextInt(48) * 30;
+                // Mostly valid windows, with the odd inverted one
+                ends[i] = random.nextInt(10) == 0 ? random.nextInt(48) * 30 : Math.min(starts[i] + random.nextInt(24) * 30, DealTimeIndex.MINUTES_PER_DAY - 1);
+            }
+
+            int[] expected = treeMapPeak(starts, ends);
+            OverlapProfile profile = OverlapProfile.build(starts, ends);
+            assertEquals(expected[0], profile.peakStart(), "start, round " + round);
+            assertEquals(expected[1], profile.peakEnd(), "end, round " + round);
+        }
+    }
+
+    @Test
+    void testActiveBetween_MatchesBruteForce() {
+        Random random = new Random(5);
+        int n = 300;
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = random.nextInt(DealTimeIndex.MINUTES_PER_DAY);
+            ends[i] = random.nextInt(DealTimeIndex.MINUTES_PER_DAY);
+        }
+        OverlapProfile profile = OverlapProfile.build(starts, ends);
+
+        for (int round = 0; round < 2_000; round++) {
+            int from = random.nextInt(DealTimeIndex.MINUTES_PER_DAY);
+            int to = from + random.nextInt(DealTimeIndex.MINUTES_PER_DAY - from);
+            int expected = 0;
+            for (int i = 0; i < n; i++) {
+                if (starts[i] <= ends[i] && starts[i] <= to && ends[i] >= from) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, profile.activeBetween(from, to), "[" + from + ", " + to + "]");
+        }
+    }
+
+    @Test
+    void testTopWindows_GreedyPlateausRankedByOverlap() {
+        // 11:00–12:00 x2 (lunch), 18:00–20:00 x3 with 18:30–19:00 x4 (dinner), 15:00–16:00 x1
+        OverlapProfile profile = OverlapProfile.build(
+                new int[] {660, 660, 1080, 1080, 1080, 1110, 900},
+                new int[] {720, 720, 1200, 1200, 1200, 1140, 960});
+
+        // Once 18:30–19:00 is taken, the 18:00–18:30 and 19:00–20:00 shoulders are the busiest left
+        assertEquals(List.of(
+                new OverlapProfile.Window(1110, 1140, 4),
+                new OverlapProfile.Window(1080, 1110, 3),
+                new OverlapProfile.Window(1140, 1200, 3),
+                new OverlapProfile.Window(660, 720, 2),
+                new OverlapProfile.Window(900, 960, 1)), profile.topWindows(10));
+        assertEquals(List.of(
+                new OverlapProfile.Window(1110, 1140, 4),
+                new OverlapProfile.Window(1080, 1110, 3)), profile.topWindows(2));
+        assertEquals(List.of(new OverlapProfile.Window(1110, 1140, 4)), profile.topWindows(1));
+        assertTrue(OverlapProfile.build(new int[0], new int[0]).topWindows(3).isEmpty());
+    }
+
+    @Test
+    void testTopWindows_StaircaseStillFillsK() {
+        // 1 deal 10:00–11:00 and 2 deals 11:00–12:00: 10:00–11:00 is no local maximum, but is the next busiest
+        OverlapProfile profile = OverlapProfile.build(new int[] {600, 660, 660}, new int[] {660, 720, 720});
+
+        assertEquals(List.of(
+                new OverlapProfile.Window(660, 720, 2),
+                new OverlapProfile.Window(600, 660, 1)), profile.topWindows(2));
+        // Fewer than K only when the curve runs out of positive plateaus
+        assertEquals(profile.topWindows(2), profile.topWindows(5));
+    }
+
+    @Test
+    void testTopWindows_FirstEqualsPeakAndWindowsAreDisjoint() {
+        Random random = new Random(17);
+        for (int round = 0; round < 500; round++) {
+            int n = 1 + random.nextInt(40);
+            int[] starts = new int[n];
+            int[] ends = new int[n];
+            for (int i = 0; i < n; i++) {
+                starts[i] = random.nextInt(96) * 15;
+                ends[i] = Math.min(starts[i] + random.nextInt(24) * 15, DealTimeIndex.MINUTES_PER_DAY - 1);
+            }
+            OverlapProfile profile = OverlapProfile.build(starts, ends);
+            List<OverlapProfile.Window> windows = profile.topWindows(5);
+
+            if (!profile.hasPeak()) {
+                assertTrue(windows.isEmpty());
+                continue;
+            }
+            long plateaus = IntStream.range(0, DealTimeIndex.MINUTES_PER_DAY - 1)
+                    .filter(m -> profile.overlapAt(m) > 0 && (m == 0 || profile.overlapAt(m - 1) != profile.overlapAt(m)))
+                    .count();
+            assertEquals(Math.min(5, plateaus), windows.size(), "fewer than K only when the curve is exhausted, round " + round);
+            assertEquals(new OverlapProfile.Window(profile.peakStart(), profile.peakEnd(), profile.peakOverlap()), windows.get(0), "round " + round);
+            for (int i = 1; i < windows.size(); i++) {
+                assertTrue(windows.get(i).overlap() <= windows.get(i - 1).overlap(), "ranked, round " + round);
+                for (int j = 0; j < i; j++) {
+                    OverlapProfile.Window a = windows.get(i);
+                    OverlapProfile.Window b = windows.get(j);
+                    assertTrue(a.end() <= b.start() || b.end() <= a.start(), "disjoint, round " + round);
+                }
+            }
+        }
+    }
+
+    // The pre-snapshot DealServiceImpl sweep over a TreeMap, on minutes
+    private static int[] treeMapPeak(int[] starts, int[] ends) {
+        TreeMap<Integer, Integer> timeCountMap = new TreeMap<>();
+        for (int i = 0; i < starts.length; i++) {
+            timeCountMap.merge(starts[i], 1, Integer::sum);
+            timeCountMap.merge(ends[i], -1, Integer::sum);
+        }
+        int overlapdeals = 0;
+        int best = -1;
+        Integer peakStart = null;
+        Integer peakEnd = null;
+        Integer prevTime = null;
+        for (Map.Entry<Integer, Integer> e : timeCountMap.entrySet()) {
+            int currentTime = e.getKey();
+            if (prevTime != null) {
+                if (overlapdeals > best) {
+                    best = overlapdeals;
+                    peakStart = prevTime;
+                    peakEnd = currentTime;
+                } else if (overlapdeals == best && best > 0 && peakEnd == prevTime.intValue()) {
+                    peakEnd = currentTime;
+                }
+            }
+            overlapdeals += e.getValue();
+            prevTime = currentTime;
+        }
+        if (best <= 0 || peakStart == null || peakEnd == null || peakEnd <= peakStart) {
+            return new int[] {-1, -1};
+        }
+        return new int[] {peakStart, peakEnd};
+    }
+}
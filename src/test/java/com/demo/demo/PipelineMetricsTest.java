@@ -0,0 +1,128 @@
+package com.demo.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.demo.demo.benchmark.SyntheticFeed;
+import com.demo.demo.config.MetricsConfig;
+import com.demo.demo.config.UrlProperties;
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.http.DealLoader;
+import com.demo.demo.repository.DealFilter;
+import com.demo.demo.repository.DealsRepository;
+import com.demo.demo.repository.Impl.CachedHttpDealsRepository;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.service.Impl.DealServiceImpl;
+import com.demo.demo.utils.ServerTiming;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class PipelineMetricsTest {
+
+    @Mock
+    DealsRepository dealsRepository;
+
+    @Mock
+    DealLoader dealLoader;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        Metrics.addRegistry(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Metrics.removeRegistry(registry);
+        ServerTiming.end();
+    }
+
+    @Test
+    void testParse_RecordsStagesAndFailures() throws Exception {
+        DealLoader loader = new DealLoader(null, new ObjectMapper(), new UrlProperties());
+
+        loader.parse(new ByteArrayInputStream(SyntheticFeed.json(1_000)));
+
+        assertEquals(1, stageCount("parse"));
+        assertEquals(1, stageCount("normalise_cpu"));
+        assertTrue(registry.get("deals.stage").tag("stage", "normalise_cpu").timer().totalTime(TimeUnit.NANOSECONDS)
+                <= registry.get("deals.stage").tag("stage", "parse").timer().totalTime(TimeUnit.NANOSECONDS),
+                "A sequential normalisation is part of the parse");
+
+        byte[] broken = "{\"restaurants\":[{\"objectId\":\"R-1\"}]}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(NullPointerException.class, () -> loader.parse(new ByteArrayInputStream(broken)));
+        assertEquals(1, registry.get("deals.load.parse.failures").counter().count());
+    }
+
+    @Test
+    void testSerialisedDeals_RecordsStagesCacheRatioAndServerTiming() {
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        when(dealsRepository.getSnapshot()).thenReturn(DealSnapshot.of(1, List.of(d1)));
+        DealServiceImpl dealService = new DealServiceImpl(dealsRepository, new ObjectMapper(), new UrlProperties());
+        new MetricsConfig().dealResponseCacheMetrics(dealService).bindTo(registry);
+
+        ServerTiming timing = ServerTiming.start();
+        dealService.getSerialisedDealsActiveAt("16:00");
+        String header = timing.header();
+        dealService.getSerialisedDealsActiveAt("16:30");
+
+        for (String stage : new String[] {"filter", "map", "serialise", "compress"}) {
+            assertEquals(1, stageCount(stage), stage + " runs once; the second request is a cache hit");
+            assertTrue(header.contains(stage + ";dur="), header);
+        }
+        assertTrue(header.contains("cache;desc=\"miss\""), header);
+        assertEquals(1, registry.get("deals.response.cache.hits").functionCounter().count());
+        assertEquals(1, registry.get("deals.response.cache.misses").functionCounter().count());
+        assertEquals(0.5, registry.get("deals.response.cache.hit.ratio").gauge().value());
+
+        // Filtered responses bypass the cache and do not count towards the ratio
+        dealService.getSerialisedDealsActiveAt("16:00", new DealFilter("sydney", null, null, null, null));
+        assertEquals(0.5, registry.get("deals.response.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void testSnapshotGauges_NaNUntilFirstLoad() throws Exception {
+        NormalisedDeal d1 = new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0),
+                "d1", "10", true, false, 5,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        CachedHttpDealsRepository repository = new CachedHttpDealsRepository(dealLoader, new UrlProperties());
+        new MetricsConfig().dealSnapshotMetrics(repository).bindTo(registry);
+
+        assertTrue(Double.isNaN(registry.get("deals.snapshot.deals").gauge().value()));
+
+        when(dealLoader.loadAll()).thenReturn(List.of(d1));
+        repository.getSnapshot();
+
+        assertEquals(1, registry.get("deals.snapshot.deals").gauge().value());
+        assertEquals(1, registry.get("deals.snapshot.version").gauge().value());
+        assertTrue(registry.get("deals.snapshot.age").timeGauge().value() >= 0);
+        assertEquals(1, stageCount("build"));
+    }
+
+    private long stageCount(String stage) {
+        return registry.get("deals.stage").tag("stage", stage).timer().count();
+    }
+}
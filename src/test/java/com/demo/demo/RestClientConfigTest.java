@@ -0,0 +1,208 @@
+package com.demo.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import com.demo.demo.config.HttpKeepAliveEnvironmentPostProcessor;
+import com.demo.demo.config.RestClientConfig;
+import com.demo.demo.config.UrlProperties;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class RestClientConfigTest {
+
+    private static final int REQUESTS = 16;
+    private static final int TOMCAT_THREADS = 4;
+    private static final String KEEP_ALIVE = "jdk.httpclient.keepalive.timeout";
+
+    @TempDir
+    Path dir;
+
+    private MockWebServer mockWebServer;
+
+    // Holds every upstream response until the test has seen the requests pile up
+    private final CountDownLatch upstreamRelease = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                upstreamRelease.await(30, TimeUnit.SECONDS);
+                return new MockResponse().setBody("{\"restaurants\":[]}");
+            }
+        });
+        mockWebServer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        upstreamRelease.countDown();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void testSlowUpstream_VirtualThreadsAreNotCappedByPoolSize() throws Exception {
+        try (ConfigurableApplicationContext context = start(true)) {
+            assertTrue(context.getBean(HttpClient.class).executor().isPresent(), "The feed client should run on virtual threads");
+            InFlightRequests inFlight = context.getBean(InFlightRequests.class);
+
+            List<CompletableFuture<HttpResponse<String>>> responses = sendConcurrently(context);
+            // Every request waits in the web tier on the single cold-start load, none queued behind a pool
+            awaitInFlight(inFlight, REQUESTS);
+            upstreamRelease.countDown();
+
+            assertAllOk(responses);
+            assertEquals(REQUESTS, inFlight.peak.get());
+        }
+    }
+
+    @Test
+    void testSlowUpstream_PlatformThreadsAreCappedByPoolSize() throws Exception {
+        try (ConfigurableApplicationContext context = start(false)) {
+            assertTrue(context.getBean(HttpClient.class).executor().isEmpty(), "The feed client should use its default executor");
+            InFlightRequests inFlight = context.getBean(InFlightRequests.class);
+
+            List<CompletableFuture<HttpResponse<String>>> responses = sendConcurrently(context);
+            awaitInFlight(inFlight, TOMCAT_THREADS);
+            // The remaining requests sit in Tomcat's accept queue until a pool thread is free
+            Thread.sleep(300);
+            assertEquals(TOMCAT_THREADS, inFlight.peak.get(), "Only pool threads can be inside the application at once");
+            upstreamRelease.countDown();
+
+            assertAllOk(responses);
+            assertEquals(TOMCAT_THREADS, inFlight.peak.get());
+        }
+    }
+
+    @Test
+    void testKeepAlive_AppliedFromPropertiesUnlessSetOnCommandLine() {
+        String original = System.getProperty(KEEP_ALIVE);
+        try {
+            System.clearProperty(KEEP_ALIVE);
+            MockEnvironment environment = new MockEnvironment().withProperty("data.http.keep-alive", "PT2M");
+            new HttpKeepAliveEnvironmentPostProcessor().postProcessEnvironment(environment, new SpringApplication());
+            assertEquals("120", System.getProperty(KEEP_ALIVE));
+
+            System.setProperty(KEEP_ALIVE, "30");
+            new HttpKeepAliveEnvironmentPostProcessor().postProcessEnvironment(environment, new SpringApplication());
+            assertEquals("30", System.getProperty(KEEP_ALIVE), "A -D flag wins");
+        } finally {
+            if (Objects.isNull(original)) {
+                System.clearProperty(KEEP_ALIVE);
+            } else {
+                System.setProperty(KEEP_ALIVE, original);
+            }
+        }
+    }
+
+    @Test
+    void testSlowUpstream_ReadTimeoutFailsTheRequest() {
+        UrlProperties.Http http = new UrlProperties.Http();
+        http.setReadTimeout(Duration.ofMillis(200));
+        RestClient restClient = RestClient.builder()
+                .requestFactory(RestClientConfig.requestFactory(http, true))
+                .build();
+
+        assertThrows(ResourceAccessException.class,
+                () -> restClient.get().uri(mockWebServer.url("/challenge.json").uri()).retrieve().body(String.class));
+    }
+
+    // Boots the application on a random port against the held upstream; command-line arguments override application.yml
+    private ConfigurableApplicationContext start(boolean virtualThreads) {
+        return new SpringApplicationBuilder(DemoApplication.class, InFlightRequests.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                "--server.tomcat.threads.min-spare=1",
+                "--data.url=" + mockWebServer.url("/challenge.json"),
+                "--data.snapshot-file=" + dir.resolve("deals.snapshot"));
+    }
+
+    private static List<CompletableFuture<HttpResponse<String>>> sendConcurrently(ConfigurableApplicationContext context) {
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/deals?timeOfDay=12pm"))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        return responses;
+    }
+
+    private static void awaitInFlight(InFlightRequests inFlight, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (inFlight.current.get() < expected) {
+            if (System.nanoTime() > deadline) {
+                fail("Expected " + expected + " requests in flight, saw " + inFlight.current.get());
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static void assertAllOk(List<CompletableFuture<HttpResponse<String>>> responses) throws Exception {
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            HttpResponse<String> result = response.get(30, TimeUnit.SECONDS);
+            assertEquals(200, result.statusCode(), result.body());
+            assertEquals("[]", result.body());
+        }
+    }
+
+    /**
+     * Counts the requests inside the application at the same time.
+     */
+    static class InFlightRequests implements Filter {
+
+        private final AtomicInteger current = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+            peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                current.decrementAndGet();
+            }
+        }
+    }
+}
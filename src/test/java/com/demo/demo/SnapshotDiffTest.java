@@ -0,0 +1,155 @@
+package com.demo.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.repository.snapshot.ChangeLog;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.DealStore;
+import com.demo.demo.repository.snapshot.SnapshotDiff;
+
+public class SnapshotDiffTest {
+
+    @Test
+    void testBetween_AddedModifiedRemoved() {
+        DealSnapshot v1 = DealSnapshot.of(1, List.of(deal("d1", "10", 5), deal("d2", "20", 3), deal("d3", "30", 1)));
+        DealSnapshot v2 = DealSnapshot.of(2, List.of(deal("d1", "10", 5), deal("d2", "25", 3), deal("d4", "40", 2)),
+                DealStore.Layout.COLUMNAR);
+
+        SnapshotDiff diff = SnapshotDiff.between(v1, v2);
+
+        assertEquals(new SnapshotDiff(1, 2, List.of("d4"), List.of("d2"), List.of("d3")), diff);
+        assertTrue(SnapshotDiff.between(v1, DealSnapshot.of(2, v1.deals(), DealStore.Layout.COLUMNAR)).isEmpty(),
+                "The layout does not change a deal's content");
+    }
+
+    @Test
+    void testBetween_QuantityAndRestaurantChangesAreModifications() {
+        NormalisedDeal moved = new NormalisedDeal("r1", "eatclub", "addr2", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0), "d2", "20", true, false, 3,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+        DealSnapshot v1 = DealSnapshot.of(1, List.of(deal("d1", "10", 5), deal("d2", "20", 3)));
+        DealSnapshot v2 = DealSnapshot.of(2, List.of(deal("d1", "10", 4), moved));
+
+        assertEquals(List.of("d1", "d2"), SnapshotDiff.between(v1, v2).modified());
+    }
+
+    @Test
+    void testBetween_ClaimsAreNotModifications() {
+        DealSnapshot v1 = DealSnapshot.of(1, List.of(deal("d1", "10", 5)));
+        v1.inventory().claim("d1");
+        DealSnapshot v2 = DealSnapshot.of(2, List.of(deal("d1", "10", 5)));
+        v2.inventory().takeOver(v1.inventory());
+
+        assertTrue(SnapshotDiff.between(v1, v2).isEmpty());
+        assertEquals(4, v2.find("d1").qtyLeft(), "Payloads carry the live quantity");
+        assertNull(v2.find("missing"));
+    }
+
+    @Test
+    void testBetween_StringHashCodeCollisionsAreModifications() {
+        // "Aa" and "BB" share a String.hashCode, as do the pairs built from them
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        DealSnapshot v1 = DealSnapshot.of(1, List.of(deal("d1", "Aa", 5), deal("d2", "AaBB", 3), restaurant("d3", "ab", "c")));
+        DealSnapshot v2 = DealSnapshot.of(2, List.of(deal("d1", "BB", 5), deal("d2", "BBAa", 3), restaurant("d3", "a", "bc")));
+
+        assertEquals(List.of("d1", "d2", "d3"), SnapshotDiff.between(v1, v2).modified());
+    }
+
+    @Test
+    void testChangeLog_FoldsConsecutiveDiffs() {
+        DealSnapshot v1 = DealSnapshot.of(1, List.of(deal("d1", "10", 5), deal("d2", "20", 3)));
+        DealSnapshot v2 = DealSnapshot.of(2, List.of(deal("d1", "15", 5), deal("d3", "30", 1)));
+        DealSnapshot v3 = DealSnapshot.of(3, List.of(deal("d1", "15", 5), deal("d2", "20", 3), deal("d4", "40", 2)));
+        ChangeLog log = new ChangeLog();
+        log.append(SnapshotDiff.between(v1, v2), 8);
+        log.append(SnapshotDiff.between(v2, v3), 8);
+
+        // d3 came and went; d2 went and came back, so the client must replace its copy
+        assertEquals(Optional.of(new SnapshotDiff(1, 3, List.of("d4"), List.of("d1", "d2"), List.of())), log.since(1, 3));
+        assertEquals(Optional.of(new SnapshotDiff(2, 3, List.of("d2", "d4"), List.of(), List.of("d3"))), log.since(2, 3));
+        assertTrue(log.since(3, 3).orElseThrow().isEmpty());
+    }
+
+    @Test
+    void testChangeLog_ResyncWhenHistoryDoesNotCoverVersion() {
+        ChangeLog log = new ChangeLog();
+        DealSnapshot[] snapshots = new DealSnapshot[6];
+        for (int v = 1; v < snapshots.length; v++) {
+            snapshots[v] = DealSnapshot.of(v, List.of(deal("d" + v, "10", 1)));
+            if (v > 1) {
+                log.append(SnapshotDiff.between(snapshots[v - 1], snapshots[v]), 2);
+            }
+        }
+
+        assertTrue(log.since(3, 5).isPresent());
+        assertTrue(log.since(2, 5).isEmpty(), "Evicted from the history");
+        assertTrue(log.since(9, 5).isEmpty(), "Ahead of the current version");
+        assertTrue(log.since(3, 4).isPresent(), "A caller may sync to an older snapshot it still holds");
+
+        // A diff that does not continue the history (e.g. after a restore) starts a new one
+        log.append(SnapshotDiff.between(DealSnapshot.of(7, List.of()), DealSnapshot.of(8, List.of())), 2);
+        assertTrue(log.since(4, 8).isEmpty());
+        assertTrue(log.since(7, 8).isPresent());
+    }
+
+    @Test
+    void testChangeLog_MatchesDirectDiff() {
+        Random random = new Random(23);
+        List<DealSnapshot> snapshots = new ArrayList<>();
+        ChangeLog log = new ChangeLog();
+        for (int v = 0; v < 40; v++) {
+            List<NormalisedDeal> deals = new ArrayList<>();
+            for (int id = 0; id < 30; id++) {
+                if (random.nextInt(4) != 0) {
+                    deals.add(deal("d" + id, String.valueOf(10 * random.nextInt(3)), 5));
+                }
+            }
+            snapshots.add(DealSnapshot.of(v, deals));
+            if (v > 0) {
+                log.append(SnapshotDiff.between(snapshots.get(v - 1), snapshots.get(v)), 64);
+            }
+        }
+
+        for (int round = 0; round < 200; round++) {
+            int from = random.nextInt(snapshots.size());
+            int to = from + random.nextInt(snapshots.size() - from);
+            SnapshotDiff direct = SnapshotDiff.between(snapshots.get(from), snapshots.get(to));
+            SnapshotDiff folded = log.since(from, to).orElseThrow();
+
+            assertEquals(Set.copyOf(direct.added()), Set.copyOf(folded.added()), "added, round " + round);
+            assertEquals(Set.copyOf(direct.removed()), Set.copyOf(folded.removed()), "removed, round " + round);
+            // The fold may also report deals that changed and changed back, which replacing is harmless
+            Set<String> modified = new HashSet<>(folded.modified());
+            assertTrue(modified.containsAll(direct.modified()), "modified, round " + round);
+            for (String id : modified) {
+                assertTrue(Objects.nonNull(snapshots.get(from).find(id)) && Objects.nonNull(snapshots.get(to).find(id)), id);
+            }
+        }
+    }
+
+    private static NormalisedDeal restaurant(String id, String address1, String suburb) {
+        return new NormalisedDeal("r1", "eatclub", address1, suburb,
+                LocalTime.of(15, 0), LocalTime.of(21, 0), id, "10", true, false, 1,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+    }
+
+    private static NormalisedDeal deal(String id, String discount, int qty) {
+        return new NormalisedDeal("r1", "eatclub", "addr1", "sydney",
+                LocalTime.of(15, 0), LocalTime.of(21, 0), id, discount, true, false, qty,
+                LocalTime.of(15, 0), LocalTime.of(21, 0));
+    }
+}
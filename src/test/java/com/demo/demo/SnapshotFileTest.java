@@ -0,0 +1,125 @@
+package com.demo.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.demo.demo.benchmark.SyntheticFeed;
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.entity.Restaurant;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.DealStore;
+import com.demo.demo.repository.snapshot.SnapshotFile;
+
+public class SnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRoundTrip_PreservesDealsAndVersion() throws IOException {
+        List<NormalisedDeal> feed = SyntheticFeed.deals(5_000);
+        Path file = dir.resolve("deals.snapshot");
+
+        SnapshotFile.write(file, 42, feed);
+
+        for (DealStore.Layout layout : DealStore.Layout.values()) {
+            DealSnapshot restored = SnapshotFile.read(file, layout);
+            assertEquals(42, restored.version());
+            assertEquals(feed, List.copyOf(restored.deals()), layout.name());
+        }
+    }
+
+    @Test
+    void testRoundTrip_NullFieldsAndSharedRestaurants() throws IOException {
+        Restaurant restaurant = new Restaurant("r1", "eatclub", null, "sydney", LocalTime.of(15, 0), null);
+        List<NormalisedDeal> deals = List.of(
+                new NormalisedDeal(restaurant, null, LocalTime.of(20, 0), "d1", null, true, false, 5),
+                new NormalisedDeal(restaurant, LocalTime.of(16, 30), null, "d2", "20", false, true, 0));
+        Path file = dir.resolve("deals.snapshot");
+
+        SnapshotFile.write(file, 1, deals);
+        List<NormalisedDeal> restored = SnapshotFile.read(file, DealStore.Layout.LIST).deals();
+
+        assertEquals(deals, restored);
+        assertSame(restored.get(0).restaurant(), restored.get(1).restaurant(), "Restaurants should be written once and shared");
+    }
+
+    @Test
+    void testRoundTrip_PreservesLiveQuantities() throws IOException {
+        Restaurant restaurant = new Restaurant("r1", "eatclub", "addr1", "sydney", LocalTime.of(15, 0), LocalTime.of(21, 0));
+        List<NormalisedDeal> feed = List.of(
+                new NormalisedDeal(restaurant, null, null, "d1", "10", true, false, 5),
+                new NormalisedDeal(restaurant, null, null, "d2", "20", false, true, 3));
+        DealSnapshot snapshot = DealSnapshot.of(7, feed);
+        snapshot.inventory().claim("d1");
+        snapshot.inventory().claim("d1");
+        Path file = dir.resolve("deals.snapshot");
+
+        SnapshotFile.write(file, snapshot);
+
+        for (DealStore.Layout layout : DealStore.Layout.values()) {
+            DealSnapshot restored = SnapshotFile.read(file, layout);
+            assertEquals(List.of(3, 3), restored.deals().stream().map(NormalisedDeal::qtyLeft).toList(), layout.name());
+            assertEquals(5, restored.store().get(0).qtyLeft(), "The feed quantity is kept for the next refresh");
+            assertEquals(2, restored.inventory().claim("d1"));
+        }
+    }
+
+    @Test
+    void testWrite_ReplacesExistingFile() throws IOException {
+        Path file = dir.resolve("nested").resolve("deals.snapshot");
+
+        SnapshotFile.write(file, 1, SyntheticFeed.deals(100));
+        SnapshotFile.write(file, 2, SyntheticFeed.deals(10));
+
+        DealSnapshot restored = SnapshotFile.read(file, DealStore.Layout.LIST);
+        assertEquals(2, restored.version());
+        assertEquals(10, restored.deals().size());
+        try (var files = Files.list(file.getParent())) {
+            assertEquals(1, files.count(), "No temporary files should be left behind");
+        }
+    }
+
+    @Test
+    void testRead_RejectsCorruptFile() throws IOException {
+        Path file = dir.resolve("deals.snapshot");
+        SnapshotFile.write(file, 1, SyntheticFeed.deals(100));
+        byte[] bytes = Files.readAllBytes(file);
+
+        bytes[bytes.length / 2] ^= 0x10;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> SnapshotFile.read(file, DealStore.Layout.LIST));
+
+        Files.write(file, new byte[] {1, 2});
+        assertThrows(IOException.class, () -> SnapshotFile.read(file, DealStore.Layout.LIST));
+    }
+
+    @Test
+    void testRead_RejectsOtherFormatVersion() throws IOException {
+        Path file = dir.resolve("deals.snapshot");
+        SnapshotFile.write(file, 1, SyntheticFeed.deals(10));
+        byte[] bytes = Files.readAllBytes(file);
+
+        // Bump the format version and recompute the checksum so only the version check can fail
+        ByteBuffer.wrap(bytes).putShort(4, (short) 99);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        ByteBuffer.wrap(bytes).putInt(bytes.length - 4, (int) crc.getValue());
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> SnapshotFile.read(file, DealStore.Layout.LIST));
+        assertEquals("Unsupported snapshot format version 99", e.getMessage());
+    }
+}
@@ -0,0 +1,65 @@
+package com.demo.demo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.demo.utils.TimeUtils;
+
+public class TimeUtilsTest {
+
+    @Test
+    void testParseTime_SupportedFormats() {
+        assertEquals(LocalTime.of(14, 0), TimeUtils.parseTime("2PM"));
+        assertEquals(LocalTime.of(14, 0), TimeUtils.parseTime("02:00PM"));
+        assertEquals(LocalTime.of(15, 0), TimeUtils.parseTime("3:00pm"));
+        assertEquals(LocalTime.of(14, 0), TimeUtils.parseTime("14:00"));
+        assertEquals(LocalTime.of(9, 5), TimeUtils.parseTime("9:05"));
+        assertEquals(LocalTime.of(11, 30), TimeUtils.parseTime(" 11:30am "));
+    }
+
+    @Test
+    void testParseTime_TwelveHourEdges() {
+        assertEquals(LocalTime.of(0, 0), TimeUtils.parseTime("12AM"));
+        assertEquals(LocalTime.of(12, 0), TimeUtils.parseTime("12:00PM"));
+        assertEquals(LocalTime.of(0, 30), TimeUtils.parseTime("0:30AM"));
+        assertEquals(LocalTime.of(12, 0), TimeUtils.parseTime("0:00PM"));
+        assertEquals(LocalTime.of(0, 0), TimeUtils.parseTime("24:00"));
+    }
+
+    @Test
+    void testParseTime_NullOrBlank() {
+        assertNull(TimeUtils.parseTime(null));
+        assertNull(TimeUtils.parseTime("   "));
+        assertEquals(-1, TimeUtils.parseMinuteOfDay(null));
+    }
+
+    @Test
+    void testParseTime_InvalidFormats() {
+        for (String invalid : new String[] {"2", "2.5", "13:00PM", "24:01", "14:60", "1:5", "14:000", "2 PM", "123PM", "-1:00", "14:00X"}) {
+            assertThrows(IllegalArgumentException.class, () -> TimeUtils.parseTime(invalid), invalid);
+        }
+    }
+
+    @Test
+    void testParseMinuteOfDay() {
+        assertEquals(14 * 60, TimeUtils.parseMinuteOfDay("2PM"));
+        assertEquals(23 * 60 + 59, TimeUtils.parseMinuteOfDay("11:59pm"));
+        assertEquals(0, TimeUtils.parseMinuteOfDay("00:00"));
+    }
+
+    @Test
+    void testParseMinuteRange() {
+        assertArrayEquals(new int[] {12 * 60, 13 * 60}, TimeUtils.parseMinuteRange("12:00", "1:00pm"));
+        assertArrayEquals(new int[] {13 * 60, 23 * 60 + 59}, TimeUtils.parseMinuteRange("1pm", null), "A missing bound extends to the end of the day");
+        assertArrayEquals(new int[] {0, 23 * 60 + 59}, TimeUtils.parseMinuteRange(null, " "));
+        assertArrayEquals(new int[] {18 * 60, 18 * 60}, TimeUtils.parseMinuteRange("6pm", "18:00"));
+        assertThrows(IllegalArgumentException.class, () -> TimeUtils.parseMinuteRange("18:00", "17:00"));
+        assertThrows(IllegalArgumentException.class, () -> TimeUtils.parseMinuteRange("soon", null));
+    }
+}
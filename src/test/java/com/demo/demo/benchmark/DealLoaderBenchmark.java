@@ -0,0 +1,58 @@
+package com.demo.demo.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.demo.demo.config.UrlProperties;
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.http.DealLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams a synthetic feed through {@link DealLoader#parse}, i.e. JSON parsing plus normalisation,
+ * without the HTTP round trip.
+ * To measure scaling on a given core count, pin the forked JVM with
+ * {@code -jvmArgsAppend -XX:ActiveProcessorCount=N} and compare the {@code parallelism} values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DealLoaderBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int deals;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private byte[] feed;
+    private DealLoader dealLoader;
+
+    @Setup
+    public void setUp() {
+        feed = SyntheticFeed.json(deals);
+        dealLoader = new DealLoader(null, new ObjectMapper(), new UrlProperties());
+    }
+
+    @Benchmark
+    public List<NormalisedDeal> parse() throws IOException {
+        return dealLoader.parse(new ByteArrayInputStream(feed), parallelism);
+    }
+}
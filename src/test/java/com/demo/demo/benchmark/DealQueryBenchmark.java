@@ -0,0 +1,135 @@
+package com.demo.demo.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.demo.demo.DTO.DealResponse;
+import com.demo.demo.DTO.PeakWindowResponse;
+import com.demo.demo.DTO.PeakWindowsResponse;
+import com.demo.demo.DTO.SerialisedDeals;
+import com.demo.demo.config.UrlProperties;
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.http.DealLoader;
+import com.demo.demo.repository.DealFilter;
+import com.demo.demo.repository.Impl.CachedHttpDealsRepository;
+import com.demo.demo.repository.snapshot.DealSnapshot;
+import com.demo.demo.repository.snapshot.DealStore;
+import com.demo.demo.service.Impl.DealServiceImpl;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Query paths over an already loaded synthetic snapshot: the active-deal lookup, the peak window,
+ * Jackson serialisation of the response list, and the per-snapshot build they all depend on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DealQueryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int deals;
+
+    @Param({"6:30pm"})
+    public String timeOfDay;
+
+    @Param({"LIST", "COLUMNAR"})
+    public DealStore.Layout layout;
+
+    private static final DealFilter FILTER = new DealFilter("Sydney", true, null, 5, null);
+
+    private List<NormalisedDeal> feed;
+    private CachedHttpDealsRepository repository;
+    private DealServiceImpl dealService;
+    private ObjectMapper objectMapper;
+    private List<DealResponse> responses;
+
+    @Setup
+    public void setUp() {
+        feed = SyntheticFeed.deals(deals);
+        UrlProperties props = new UrlProperties();
+        props.setSnapshotLayout(layout);
+        repository = new CachedHttpDealsRepository(new DealLoader(null, null, props) {
+            @Override
+            public List<NormalisedDeal> loadAll() {
+                return feed;
+            }
+
+            @Override
+            public Optional<List<NormalisedDeal>> loadIfChanged() {
+                return Optional.empty();
+            }
+        }, props);
+        objectMapper = new ObjectMapper();
+        dealService = new DealServiceImpl(repository, objectMapper, props);
+        responses = dealService.getDealsActiveAt(timeOfDay);
+    }
+
+    @Benchmark
+    public List<NormalisedDeal> findAllActiveDeals() {
+        return repository.findAllActiveDeals(timeOfDay);
+    }
+
+    @Benchmark
+    public List<NormalisedDeal> findFilteredActiveDeals() {
+        return repository.findAllActiveDeals(timeOfDay, FILTER);
+    }
+
+    // What clients did before server-side filters: fetch the active deals and scan them
+    @Benchmark
+    public List<NormalisedDeal> scanFilteredActiveDeals() {
+        return repository.findAllActiveDeals(timeOfDay).stream()
+                .filter(d -> "sydney".equalsIgnoreCase(d.restaurantSuburb()) && d.dineIn() && d.qtyLeft() >= 5)
+                .toList();
+    }
+
+    @Benchmark
+    public List<NormalisedDeal> findAllDeals() {
+        return repository.findAllActiveDeals(null);
+    }
+
+    @Benchmark
+    public PeakWindowResponse getPeakDealWindow() {
+        return dealService.getPeakDealWindow();
+    }
+
+    @Benchmark
+    public PeakWindowsResponse getFilteredPeakDealWindows() {
+        return dealService.getPeakDealWindows(3, FILTER);
+    }
+
+    @Benchmark
+    public byte[] serialiseDealResponses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public SerialisedDeals getSerialisedDealsActiveAt() {
+        return dealService.getSerialisedDealsActiveAt(timeOfDay);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public DealSnapshot buildSnapshot() {
+        return DealSnapshot.of(1, feed, layout);
+    }
+}
@@ -0,0 +1,31 @@
+package com.demo.demo.benchmark;
+
+import java.util.List;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.repository.snapshot.DealStore;
+
+/**
+ * Prints the retained heap of each {@link DealStore} layout over synthetic feeds.
+ * Sizes are measured with JOL on the loaded deals, so the list layout includes every
+ * record, string and LocalTime the loader allocated.
+ * JOL needs its attach agent to read record fields, so run it with
+ * {@code -Djdk.attach.allowAttachSelf=true}.
+ */
+public final class DealStoreFootprint {
+
+    private DealStoreFootprint() {
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %14s %14s %8s%n", "deals", "list", "columnar", "ratio");
+        for (int deals : new int[] {1_000, 100_000, 1_000_000}) {
+            List<NormalisedDeal> feed = SyntheticFeed.deals(deals);
+            long list = GraphLayout.parseInstance(DealStore.of(feed, DealStore.Layout.LIST)).totalSize();
+            long columnar = GraphLayout.parseInstance(DealStore.of(feed, DealStore.Layout.COLUMNAR)).totalSize();
+            System.out.printf("%10d %14d %14d %7.2fx%n", deals, list, columnar, (double) list / columnar);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.demo.demo.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import com.demo.demo.config.UrlProperties;
+import com.demo.demo.entity.NormalisedDeal;
+import com.demo.demo.http.DealLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Generates deal feeds in the upstream JSON shape for benchmarks.
+ * Restaurants hold ten deals each on average and mix every time format and field
+ * combination the loader handles (explicit start/end, open/close, missing times).
+ * The same size and seed always produce the same feed.
+ */
+public final class SyntheticFeed {
+
+    private static final String[] SUBURBS = {"Sydney", "Melbourne", "Richmond", "Carlton", "Bondi", "Newtown", "Fitzroy", "Parramatta"};
+
+    private SyntheticFeed() {
+    }
+
+    /**
+     * @param deals number of deals to generate, across roughly deals / 10 restaurants
+     * @return the feed as UTF-8 JSON
+     */
+    public static byte[] json(int deals) {
+        Random random = new Random(deals);
+        StringBuilder out = new StringBuilder(deals * 160);
+        out.append("{\"restaurants\":[");
+        int restaurant = 0;
+        for (int remaining = deals; remaining > 0; restaurant++) {
+            int count = Math.min(remaining, 1 + random.nextInt(19));
+            remaining -= count;
+            if (restaurant > 0) {
+                out.append(',');
+            }
+            // Opening hours on the hour between 6am and 1pm, 8 to 12 hours long
+            int open = 6 + random.nextInt(8);
+            int close = Math.min(open + 8 + random.nextInt(5), 23);
+            out.append("{\"objectId\":\"R-").append(restaurant)
+                    .append("\",\"name\":\"Restaurant ").append(restaurant)
+                    .append("\",\"address1\":\"").append(restaurant).append(" Fake Street")
+                    .append("\",\"suburb\":\"").append(SUBURBS[restaurant % SUBURBS.length])
+                    .append("\",\"open\":\"").append(twelveHour(open * 60))
+                    .append("\",\"close\":\"").append(twelveHour(close * 60))
+                    .append("\",\"deals\":[");
+            for (int d = 0; d < count; d++) {
+                if (d > 0) {
+                    out.append(',');
+                }
+                out.append("{\"objectId\":\"D-").append(restaurant).append('-').append(d)
+                        .append("\",\"discount\":\"").append(5 * (1 + random.nextInt(10))).append('"')
+                        .append(",\"dineIn\":\"").append(random.nextBoolean()).append('"')
+                        .append(",\"lightning\":\"").append(random.nextInt(4) == 0).append('"')
+                        .append(",\"qtyLeft\":\"").append(random.nextInt(10)).append('"');
+                int start = open * 60 + 30 * random.nextInt(2 * (close - open));
+                int end = Math.min(start + 30 * (1 + random.nextInt(8)), close * 60);
+                switch (random.nextInt(4)) {
+                    case 0 -> out.append(",\"start\":\"").append(twelveHour(start))
+                            .append("\",\"end\":\"").append(twelveHour(end)).append('"');
+                    case 1 -> out.append(",\"open\":\"").append(twentyFourHour(start))
+                            .append("\",\"close\":\"").append(twentyFourHour(end)).append('"');
+                    case 2 -> out.append(",\"start\":\"").append(twelveHour(start)).append('"');
+                    default -> {
+                        // No times: the deal runs for the restaurant's opening hours
+                    }
+                }
+                out.append('}');
+            }
+            out.append("]}");
+        }
+        out.append("]}");
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param deals number of deals to generate
+     * @return the generated feed, normalised by {@link DealLoader#parse}
+     */
+    public static List<NormalisedDeal> deals(int deals) {
+        try {
+            return new DealLoader(null, new ObjectMapper(), new UrlProperties()).parse(new ByteArrayInputStream(json(deals)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String twelveHour(int minuteOfDay) {
+        int hour = minuteOfDay / 60 % 24;
+        int minute = minuteOfDay % 60;
+        int h12 = hour % 12 == 0 ? 12 : hour % 12;
+        String suffix = hour < 12 ? "am" : "pm";
+        return minute == 0 && h12 % 2 == 0 ? h12 + suffix : h12 + ":" + (minute < 10 ? "0" : "") + minute + suffix;
+    }
+
+    private static String twentyFourHour(int minuteOfDay) {
+        int hour = minuteOfDay / 60 % 24;
+        int minute = minuteOfDay % 60;
+        return (hour < 10 ? "0" : "") + hour + ":" + (minute < 10 ? "0" : "") + minute;
+    }
+}
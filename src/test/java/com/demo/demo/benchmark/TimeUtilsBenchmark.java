@@ -0,0 +1,95 @@
+package com.demo.demo.benchmark;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.demo.demo.utils.TimeUtils;
+
+/**
+ * Compares the single-pass {@link TimeUtils#parseTime(String)} with the previous
+ * regex + DateTimeFormatter implementation, kept here as {@link #legacyParseTime(String)},
+ * and measures {@link TimeUtils#formatTime(LocalTime)} for the response mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeUtilsBenchmark {
+
+    @Param({"2PM", "02:00PM", "3:00pm", "14:00"})
+    public String time;
+
+    private LocalTime parsed;
+
+    @Setup
+    public void setUp() {
+        parsed = TimeUtils.parseTime(time);
+    }
+
+    @Benchmark
+    public LocalTime parseTime() {
+        return TimeUtils.parseTime(time);
+    }
+
+    @Benchmark
+    public int parseMinuteOfDay() {
+        return TimeUtils.parseMinuteOfDay(time);
+    }
+
+    @Benchmark
+    public String formatTime() {
+        return TimeUtils.formatTime(parsed);
+    }
+
+    @Benchmark
+    public LocalTime legacyParseTime() {
+        return legacyParseTime(time);
+    }
+
+    private static final List<DateTimeFormatter> LEGACY_TIME_FORMATTERS = List.of(
+        DateTimeFormatter.ofPattern("h:mma").withLocale(Locale.ROOT),
+        DateTimeFormatter.ofPattern("hh:mma").withLocale(Locale.ROOT),
+        DateTimeFormatter.ofPattern("H:mm").withLocale(Locale.ROOT),
+        DateTimeFormatter.ofPattern("HH:mm").withLocale(Locale.ROOT)
+    );
+
+    static LocalTime legacyParseTime(String time) {
+        if (Objects.isNull(time) || time.isBlank()) {
+            return null;
+        }
+        String rawTime = time.trim().toUpperCase(Locale.ROOT);
+
+        if (rawTime.matches("^\\d{1,2}[AP]M$")) {
+            rawTime = rawTime.replace("AM", ":00AM").replace("PM", ":00PM");
+        }
+
+        for (DateTimeFormatter dateTimeFormatter : LEGACY_TIME_FORMATTERS) {
+            try {
+                return LocalTime.parse(rawTime, dateTimeFormatter);
+            } catch (DateTimeParseException e) {
+                // ignored
+            }
+        }
+
+        throw new IllegalArgumentException("Unrecognized time format: " + time);
+    }
+}